@@ -0,0 +1,20 @@
+package com.example.onlinestore.benchmark;
+
+import com.example.onlinestore.OnlineStoreApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Приложение на встроенной H2 (src/test/resources/application.properties)
+final class BenchmarkContext {
+
+    private BenchmarkContext() {}
+
+    static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(OnlineStoreApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.jpa.properties.hibernate.generate_statistics=false",
+                        "app.webhook.journal-path=target/webhook-journal-benchmark.log")
+                .run();
+    }
+}
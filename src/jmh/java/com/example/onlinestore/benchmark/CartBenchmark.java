@@ -0,0 +1,82 @@
+package com.example.onlinestore.benchmark;
+
+import com.example.onlinestore.cart.Cart;
+import com.example.onlinestore.cart.CartCodec;
+import com.example.onlinestore.cart.CartLine;
+import com.example.onlinestore.cart.InMemoryCartStore;
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.service.ShoppingCartService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Операции корзины при разном числе позиций
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+
+    private static final String CART_ID = "00000000-0000-0000-0000-000000000001";
+
+    @Param({"1", "10", "100"})
+    private int lines;
+
+    private ShoppingCartService cartService;
+    private InMemoryCartStore cartStore;
+    private Product[] products;
+    private Product extra;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        cartStore = new InMemoryCartStore(1000, 1);
+        cartService = new ShoppingCartService();
+        ReflectionTestUtils.setField(cartService, "cartStore", cartStore);
+
+        products = new Product[lines];
+        for (int i = 0; i < lines; i++) {
+            products[i] = product(i + 1, "199.90");
+            cartService.addProduct(CART_ID, products[i], 1);
+        }
+        extra = product(1_000_000, "5.00");
+    }
+
+    @Benchmark
+    public void addExistingProduct() {
+        cartService.addProduct(CART_ID, products[next++ % lines], 1);
+    }
+
+    @Benchmark
+    public void addAndRemoveProduct() {
+        cartService.addProduct(CART_ID, extra, 1);
+        cartService.removeProduct(CART_ID, extra.getId());
+    }
+
+    @Benchmark
+    public BigDecimal readTotals() {
+        Cart cart = cartStore.find(CART_ID);
+        return cart.getTotalPrice().add(BigDecimal.valueOf(cart.getTotalItems()));
+    }
+
+    @Benchmark
+    public List<CartLine> checkoutLines() {
+        return cartService.getLines(CART_ID);
+    }
+
+    @Benchmark
+    public Cart codecRoundTrip() {
+        return CartCodec.decode(CartCodec.encode(cartStore.find(CART_ID)));
+    }
+
+    private static Product product(long id, String price) {
+        Product product = new Product("Product " + id, "Description", new BigDecimal(price), null, 100);
+        product.setId(id);
+        return product;
+    }
+}
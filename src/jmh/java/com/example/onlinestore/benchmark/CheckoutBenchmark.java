@@ -0,0 +1,73 @@
+package com.example.onlinestore.benchmark;
+
+import com.example.onlinestore.model.Order;
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import com.example.onlinestore.service.OrderService;
+import com.example.onlinestore.service.ShoppingCartService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Оформление заказа целиком: резерв остатков, запись заказа и позиций,
+// поисковые слова. Встроенная H2
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckoutBenchmark {
+
+    private static final int CATALOG_SIZE = 500;
+
+    @Param({"1", "5", "20"})
+    private int lines;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private ShoppingCartService cartService;
+    private final List<Product> products = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        orderService = context.getBean(OrderService.class);
+        cartService = context.getBean(ShoppingCartService.class);
+        ProductRepository productRepository = context.getBean(ProductRepository.class);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            products.add(productRepository.save(new Product("Product " + i, "Description",
+                    new BigDecimal("99.90"), null, Integer.MAX_VALUE / 2)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Order createOrderFromCart(CheckoutState state) {
+        String cartId = UUID.randomUUID().toString();
+        for (int i = 0; i < lines; i++) {
+            cartService.addProduct(cartId, products.get(state.nextProduct()), 1);
+        }
+        return orderService.createOrderFromCart(cartId, "Иван Петров", "ivan@example.com", "Москва, ул. Ленина, 1");
+    }
+
+    @State(Scope.Thread)
+    public static class CheckoutState {
+        private int cursor = (int) (Math.random() * CATALOG_SIZE);
+
+        int nextProduct() {
+            cursor = (cursor + 1) % CATALOG_SIZE;
+            return cursor;
+        }
+    }
+}
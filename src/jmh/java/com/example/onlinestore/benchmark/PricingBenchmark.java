@@ -0,0 +1,55 @@
+package com.example.onlinestore.benchmark;
+
+import com.example.onlinestore.model.CartItem;
+import com.example.onlinestore.model.OrderItem;
+import com.example.onlinestore.model.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// Расчет сумм позиций в BigDecimal: корзина и заказ
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingBenchmark {
+
+    @Param({"1", "20", "100"})
+    private int lines;
+
+    private CartItem[] cartItems;
+    private OrderItem[] orderItems;
+
+    @Setup
+    public void setUp() {
+        cartItems = new CartItem[lines];
+        orderItems = new OrderItem[lines];
+        for (int i = 0; i < lines; i++) {
+            BigDecimal price = new BigDecimal("1499.99").add(BigDecimal.valueOf(i));
+            Product product = new Product("Product " + i, "Description", price, null, 100);
+            cartItems[i] = new CartItem(product, i % 5 + 1, price);
+            orderItems[i] = new OrderItem(product, i % 5 + 1, price);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal cartTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartItem item : cartItems) {
+            total = total.add(item.getTotalPrice());
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal orderTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItem item : orderItems) {
+            total = total.add(item.getTotalPrice());
+        }
+        return total;
+    }
+}
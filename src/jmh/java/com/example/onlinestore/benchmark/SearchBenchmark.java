@@ -0,0 +1,121 @@
+package com.example.onlinestore.benchmark;
+
+import com.example.onlinestore.dto.OrderSummary;
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.search.OrderSearchIndex;
+import com.example.onlinestore.search.ProductSearchIndex;
+import com.example.onlinestore.service.OrderService;
+import com.example.onlinestore.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Поиск товаров (индекс в памяти) и заказов (order_search_prefixes)
+// на каталоге и истории заказов реалистичного размера
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final String[] WORDS = {"кофе", "чай", "чайник", "кружка", "зерно", "молотый",
+            "фильтр", "турка", "кофемолка", "сироп", "шоколад", "какао", "пресс", "термос", "капсулы"};
+    private static final String[] NAMES = {"Иван", "Петр", "Анна", "Мария", "Олег", "Ольга", "Сергей", "Елена"};
+    private static final String[] SURNAMES = {"Иванов", "Петров", "Смирнов", "Кузнецов", "Попов", "Соколов"};
+
+    @Param({"10000"})
+    private int products;
+
+    @Param({"50000"})
+    private int orders;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private OrderService orderService;
+    private final String[] productQueries = {"кофе", "чайн", "кофе зерно", "термос", "шокол"};
+    private final String[] orderQueries = {"иван", "петров", "anna@", "мария смирнов", "+7999"};
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        productService = context.getBean(ProductService.class);
+        orderService = context.getBean(OrderService.class);
+        seed(context.getBean(JdbcTemplate.class));
+        context.getBean(ProductSearchIndex.class).rebuild();
+        context.getBean(OrderSearchIndex.class).backfill();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Product> searchProducts(QueryState state) {
+        return productService.searchProducts(productQueries[state.next(productQueries.length)]);
+    }
+
+    @Benchmark
+    public List<OrderSummary> searchOrders(QueryState state) {
+        return orderService.searchOrders(orderQueries[state.next(orderQueries.length)], null, 50);
+    }
+
+    @State(Scope.Thread)
+    public static class QueryState {
+        private int cursor;
+
+        int next(int length) {
+            cursor = (cursor + 1) % length;
+            return cursor;
+        }
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        Random random = new Random(42);
+        List<Object[]> productRows = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            String description = "Описание: " + WORDS[random.nextInt(WORDS.length)] + " и " +
+                    WORDS[random.nextInt(WORDS.length)];
+            productRows.add(new Object[]{name, description, 100 + random.nextInt(5000), 100});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO products (name, description, price, stock_quantity) VALUES (?, ?, ?, ?)",
+                productRows);
+
+        // Id заказов вне диапазона последовательности orders_seq
+        List<Object[]> orderRows = new ArrayList<>(orders);
+        LocalDateTime start = LocalDateTime.now().minusYears(1);
+        for (int i = 0; i < orders; i++) {
+            String first = NAMES[random.nextInt(NAMES.length)];
+            String last = SURNAMES[random.nextInt(SURNAMES.length)];
+            String email = transliterate(first) + i + "@example.com";
+            orderRows.add(new Object[]{1_000_000L + i, first + " " + last, email, "Москва, ул. Тверская, " + i,
+                    "+7999" + (1_000_000 + random.nextInt(9_000_000)), 1000 + random.nextInt(20_000),
+                    Timestamp.valueOf(start.plusMinutes(i * 10L)), "COMPLETED"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders (id, customer_name, customer_email, customer_address, " +
+                "customer_phone, total_amount, order_date, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", orderRows);
+    }
+
+    private static String transliterate(String name) {
+        return switch (name) {
+            case "Иван" -> "ivan";
+            case "Петр" -> "petr";
+            case "Анна" -> "anna";
+            case "Мария" -> "maria";
+            case "Олег" -> "oleg";
+            case "Ольга" -> "olga";
+            case "Сергей" -> "sergey";
+            default -> "elena";
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.onlinestore.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Задержки по каждому эндпоинту (микросекунды) и число ошибок
+class LatencyRecorder {
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    void record(String endpoint, long startedNanos, boolean ok) {
+        long micros = (System.nanoTime() - startedNanos) / 1000;
+        series.computeIfAbsent(endpoint, e -> new Series()).add(micros, ok);
+    }
+
+    void print(long durationMillis) {
+        double seconds = durationMillis / 1000.0;
+        System.out.printf("%n%-28s %8s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, Series> entry : new TreeMap<>(series).entrySet()) {
+            long[] values = entry.getValue().snapshot();
+            Arrays.sort(values);
+            System.out.printf("%-28s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey(), values.length, entry.getValue().errors(), values.length / seconds,
+                    percentile(values, 0.50), percentile(values, 0.95), percentile(values, 0.99),
+                    values.length > 0 ? values[values.length - 1] / 1000.0 : 0);
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1000.0;
+    }
+
+    private static final class Series {
+        private long[] values = new long[1024];
+        private int size;
+        private long errors;
+
+        synchronized void add(long micros, boolean ok) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = micros;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        synchronized long[] snapshot() {
+            return Arrays.copyOf(values, size);
+        }
+
+        synchronized long errors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.onlinestore.loadtest;
+
+import com.example.onlinestore.OnlineStoreApplication;
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Нагрузочный прогон: приложение на встроенной H2, ЮKassa - локальная заглушка.
+// Параметры - системные свойства loadtest.*:
+//   users, duration-seconds, products, yookassa-latency-ms, yookassa-error-rate, webhook-delay-ms
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("loadtest.users", 50);
+        int durationSeconds = Integer.getInteger("loadtest.duration-seconds", 60);
+        int productCount = Integer.getInteger("loadtest.products", 200);
+        long latencyMs = Long.getLong("loadtest.yookassa-latency-ms", 150);
+        double errorRate = Double.parseDouble(System.getProperty("loadtest.yookassa-error-rate", "0.02"));
+        long webhookDelayMs = Long.getLong("loadtest.webhook-delay-ms", 500);
+
+        LatencyRecorder recorder = new LatencyRecorder();
+        YooKassaSimulator simulator = new YooKassaSimulator(latencyMs, errorRate, webhookDelayMs, recorder);
+        simulator.start();
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(OnlineStoreApplication.class)
+                .properties(
+                        "server.port=0",
+                        "yookassa.api-url=" + simulator.baseUrl(),
+                        "spring.jpa.properties.hibernate.generate_statistics=false",
+                        "app.webhook.journal-path=target/webhook-journal-loadtest.log")
+                .run(args);
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        simulator.setWebhookUrl(baseUrl + "/payment/webhook");
+
+        List<Long> productIds = new ArrayList<>();
+        ProductRepository productRepository = context.getBean(ProductRepository.class);
+        for (int i = 0; i < productCount; i++) {
+            Product product = productRepository.save(new Product("Товар " + i, "Описание товара " + i,
+                    new BigDecimal(100 + i % 900), null, 1_000_000));
+            productIds.add(product.getId());
+        }
+
+        System.out.println("Load test: " + users + " users, " + durationSeconds + " s, YooKassa latency " +
+                latencyMs + " ms, error rate " + errorRate);
+        long started = System.currentTimeMillis();
+        long deadline = started + durationSeconds * 1000L;
+        ExecutorService executor = Executors.newFixedThreadPool(users);
+        for (int i = 0; i < users; i++) {
+            executor.submit(new VirtualUser(i, baseUrl, productIds, recorder, deadline));
+        }
+        executor.shutdown();
+        executor.awaitTermination(durationSeconds + 60L, TimeUnit.SECONDS);
+        // Дожидаемся последних уведомлений
+        Thread.sleep(webhookDelayMs + 1000);
+
+        recorder.print(System.currentTimeMillis() - started);
+        simulator.stop();
+        context.close();
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.onlinestore.loadtest;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Посетитель со своими cookie: каталог -> товар -> корзина -> оформление -> оплата
+class VirtualUser implements Runnable {
+
+    private static final Pattern CSRF = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+    private static final Pattern ORDER_ID = Pattern.compile("/order/success/(\\d+)");
+
+    private final String baseUrl;
+    private final List<Long> productIds;
+    private final LatencyRecorder recorder;
+    private final long deadline;
+    private final int number;
+    private final HttpClient client;
+
+    VirtualUser(int number, String baseUrl, List<Long> productIds, LatencyRecorder recorder, long deadline) {
+        this.number = number;
+        this.baseUrl = baseUrl;
+        this.productIds = productIds;
+        this.recorder = recorder;
+        this.deadline = deadline;
+        this.client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    @Override
+    public void run() {
+        int iteration = 0;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                scenario(iteration++);
+            } catch (IOException e) {
+                // Ошибка уже учтена в статистике эндпоинта
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void scenario(int iteration) throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String catalog = get("GET /", "/");
+
+        int lines = 1 + random.nextInt(3);
+        String csrf = csrf(catalog);
+        for (int i = 0; i < lines; i++) {
+            long productId = productIds.get(random.nextInt(productIds.size()));
+            csrf = csrf(get("GET /product/{id}", "/product/" + productId), csrf);
+            post("POST /cart/add", "/cart/add", form("productId", productId, "quantity", 1, "_csrf", csrf));
+        }
+        get("GET /cart", "/cart");
+
+        // Часть посетителей уходит, не оформив заказ
+        if (random.nextInt(4) == 0) {
+            return;
+        }
+        String checkout = get("GET /order/checkout", "/order/checkout");
+        HttpResponse<String> placed = post("POST /order/checkout", "/order/checkout", form(
+                "customerName", "Load User " + number,
+                "customerEmail", "user" + number + "@example.com",
+                "customerAddress", "Москва, ул. Нагрузочная, " + iteration,
+                "customerPhone", "+7999000" + number,
+                "_csrf", csrf(checkout, csrf)));
+        Matcher orderId = ORDER_ID.matcher(placed.headers().firstValue("Location").orElse(""));
+        if (!orderId.find()) {
+            return;
+        }
+
+        String success = get("GET /order/success/{id}", "/order/success/" + orderId.group(1));
+        post("POST /payment/create/{id}", "/payment/create/" + orderId.group(1),
+                form("_csrf", csrf(success, csrf)));
+    }
+
+    private String get(String endpoint, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        return send(endpoint, request).body();
+    }
+
+    private HttpResponse<String> post(String endpoint, String path, String form)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+        return send(endpoint, request);
+    }
+
+    private HttpResponse<String> send(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            recorder.record(endpoint, started, response.statusCode() < 400);
+            return response;
+        } catch (IOException e) {
+            recorder.record(endpoint, started, false);
+            throw e;
+        }
+    }
+
+    private static String csrf(String html) {
+        return csrf(html, "");
+    }
+
+    private static String csrf(String html, String fallback) {
+        Matcher matcher = CSRF.matcher(html);
+        return matcher.find() ? matcher.group(1) : fallback;
+    }
+
+    private static String form(Object... pairs) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            fields.put((String) pairs[i], pairs[i + 1]);
+        }
+        StringBuilder body = new StringBuilder();
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            if (body.length() > 0) {
+                body.append('&');
+            }
+            body.append(URLEncoder.encode(field.getKey(), StandardCharsets.UTF_8)).append('=')
+                    .append(URLEncoder.encode(String.valueOf(field.getValue()), StandardCharsets.UTF_8));
+        }
+        return body.toString();
+    }
+}
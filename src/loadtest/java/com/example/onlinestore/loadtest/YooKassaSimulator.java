@@ -0,0 +1,132 @@
+package com.example.onlinestore.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Заглушка API ЮKassa: POST /payments с заданной задержкой и долей ошибок,
+// через webhookDelayMs после создания платежа - уведомление payment.succeeded.
+// GET /payments/{id} отдает текущий статус: приложение перепроверяет по нему уведомления
+class YooKassaSimulator {
+
+    private final long latencyMs;
+    private final double errorRate;
+    private final long webhookDelayMs;
+    private final LatencyRecorder recorder;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(8);
+    private HttpServer server;
+    private volatile String webhookUrl;
+    private final Map<String, String> statuses = new ConcurrentHashMap<>();
+
+    YooKassaSimulator(long latencyMs, double errorRate, long webhookDelayMs, LatencyRecorder recorder) {
+        this.latencyMs = latencyMs;
+        this.errorRate = errorRate;
+        this.webhookDelayMs = webhookDelayMs;
+        this.recorder = recorder;
+    }
+
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/payments", this::handlePayments);
+        server.setExecutor(Executors.newFixedThreadPool(64));
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    void setWebhookUrl(String webhookUrl) {
+        this.webhookUrl = webhookUrl;
+    }
+
+    void stop() {
+        scheduler.shutdownNow();
+        server.stop(0);
+    }
+
+    private void handlePayments(HttpExchange exchange) throws IOException {
+        if ("GET".equals(exchange.getRequestMethod())) {
+            getPayment(exchange);
+        } else {
+            createPayment(exchange);
+        }
+    }
+
+    private void getPayment(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String paymentId = path.substring(path.lastIndexOf('/') + 1);
+        String status = statuses.get(paymentId);
+        if (status == null) {
+            respond(exchange, 404, "{\"type\":\"error\",\"code\":\"not_found\"}");
+            return;
+        }
+        respond(exchange, 200, "{\"id\":\"" + paymentId + "\",\"status\":\"" + status + "\"}");
+    }
+
+    private void createPayment(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+            respond(exchange, 500, "{\"type\":\"error\",\"code\":\"internal_server_error\"}");
+            return;
+        }
+
+        String paymentId = UUID.randomUUID().toString();
+        statuses.put(paymentId, "pending");
+        respond(exchange, 200, "{\"id\":\"" + paymentId + "\",\"status\":\"pending\"," +
+                "\"amount\":{\"value\":\"100.00\",\"currency\":\"RUB\"}," +
+                "\"confirmation\":{\"type\":\"redirect\",\"confirmation_url\":\"" + baseUrl() +
+                "/checkout/" + paymentId + "\"}}");
+        scheduler.schedule(() -> sendWebhook(paymentId), webhookDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void sendWebhook(String paymentId) {
+        statuses.put(paymentId, "succeeded");
+        String body = "{\"type\":\"notification\",\"event\":\"payment.succeeded\"," +
+                "\"object\":{\"id\":\"" + paymentId + "\",\"status\":\"succeeded\"}}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create(webhookUrl))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        long started = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            recorder.record("POST /payment/webhook", started, response.statusCode() == 200);
+        } catch (IOException e) {
+            recorder.record("POST /payment/webhook", started, false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
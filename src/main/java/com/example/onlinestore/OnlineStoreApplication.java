@@ -6,9 +6,11 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import java.math.BigDecimal;
 
 @SpringBootApplication
+@EnableScheduling
 public class OnlineStoreApplication {
 
     public static void main(String[] args) {
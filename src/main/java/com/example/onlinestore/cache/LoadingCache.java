@@ -0,0 +1,216 @@
+package com.example.onlinestore.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Ограниченный по размеру кэш с TTL и загрузкой "в один полет":
+// при одновременных промахах по одному ключу загрузчик вызывается один раз,
+// остальные потоки ждут его результат.
+public class LoadingCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // Ожидания чужой загрузки: значения в кэше еще не было, но загрузчик не вызывался
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // Счетчик инвалидаций, см. putIfAbsent
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public LoadingCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public V get(K key, Function<K, V> loader) {
+        long now = System.currentTimeMillis();
+        Entry<V> entry = entries.get(key);
+        if (entry != null && !entry.isExpired(now)) {
+            if (entry.value.isDone()) {
+                hits.increment();
+            } else {
+                // Значение еще загружает другой поток
+                waits.increment();
+            }
+            entry.lastAccess = now;
+            return join(entry.value);
+        }
+        if (entry != null) {
+            entries.remove(key, entry);
+        }
+
+        Entry<V> created = new Entry<>(new CompletableFuture<>(), now + ttlMillis);
+        Entry<V> existing = entries.putIfAbsent(key, created);
+        if (existing != null) {
+            // Значение уже загружает другой поток
+            waits.increment();
+            return join(existing.value);
+        }
+
+        misses.increment();
+        try {
+            V value = loader.apply(key);
+            created.value.complete(value);
+            evictIfNeeded();
+            return value;
+        } catch (RuntimeException e) {
+            entries.remove(key, created);
+            created.value.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Значение без загрузки; null - записи нет или она устарела
+    public V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.isExpired(System.currentTimeMillis())) {
+            misses.increment();
+            return null;
+        }
+        if (entry.value.isDone()) {
+            hits.increment();
+        } else {
+            waits.increment();
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        return join(entry.value);
+    }
+
+    // Метка для putIfAbsent: берется до чтения значения из источника
+    public long invalidationStamp() {
+        return invalidations.get();
+    }
+
+    // Значение, загруженное вызывающим кодом (например, пачкой из БД). Не заменяет
+    // имеющуюся запись и не сохраняется, если после метки stamp была инвалидация:
+    // прочитанное до нее значение могло устареть
+    public void putIfAbsent(K key, V value, long stamp) {
+        if (invalidations.get() != stamp) {
+            return;
+        }
+        Entry<V> created = new Entry<>(CompletableFuture.completedFuture(value),
+                System.currentTimeMillis() + ttlMillis);
+        if (entries.putIfAbsent(key, created) != null) {
+            return;
+        }
+        // Инвалидация между проверкой и вставкой могла не застать новую запись
+        if (invalidations.get() != stamp) {
+            entries.remove(key, created);
+            return;
+        }
+        evictIfNeeded();
+    }
+
+    // Счетчик увеличивается до удаления, чтобы putIfAbsent не вернул старое значение после него
+    public void invalidate(K key) {
+        invalidations.incrementAndGet();
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", (long) size());
+        stats.put("hits", hitCount());
+        stats.put("misses", missCount());
+        stats.put("waits", waitCount());
+        stats.put("evictions", evictionCount());
+        return stats;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long waitCount() {
+        return waits.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    // Сначала удаляем просроченные записи, затем самые давно использованные
+    private void evictIfNeeded() {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Candidate<K, V>> candidates = new ArrayList<>();
+        for (Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+            if (e.getValue().isExpired(now)) {
+                if (entries.remove(e.getKey(), e.getValue())) {
+                    evictions.increment();
+                }
+            } else {
+                candidates.add(new Candidate<>(e.getKey(), e.getValue(), e.getValue().lastAccess));
+            }
+        }
+        int excess = entries.size() - maxSize;
+        if (excess <= 0) {
+            return;
+        }
+        // Освобождаем с запасом, чтобы не сканировать кэш на каждой вставке
+        excess += maxSize / 10;
+        candidates.sort(Comparator.comparingLong(Candidate::lastAccess));
+        for (int i = 0; i < excess && i < candidates.size(); i++) {
+            Candidate<K, V> c = candidates.get(i);
+            if (entries.remove(c.key(), c.entry())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record Candidate<K, V>(K key, Entry<V> entry, long lastAccess) {}
+
+    private static final class Entry<V> {
+        private final CompletableFuture<V> value;
+        private final long expiresAt;
+        private volatile long lastAccess;
+
+        Entry(CompletableFuture<V> value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.lastAccess = System.currentTimeMillis();
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.onlinestore.cart;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Компактная корзина: параллельные массивы id товара / количество / цена в копейках
+// и индекс с открытой адресацией id -> номер позиции. Итоги пересчитываются
+// при каждом изменении, а не при чтении. Класс не потокобезопасен -
+// синхронизацию обеспечивает владелец (ShoppingCartService).
+public class Cart implements Serializable {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] productIds = new long[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private long[] unitPrices = new long[INITIAL_CAPACITY];
+    private int size;
+
+    // Ячейка хранит номер позиции + 1, 0 - свободно. Размер - степень двойки
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+
+    private int totalItems;
+    private long totalAmount;
+
+    // Количество должно быть положительным: отрицательная позиция уменьшила бы
+    // сумму заказа и вернула бы товар на склад при оформлении
+    public void add(long productId, int quantity, BigDecimal unitPrice) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Количество товара должно быть больше нуля: " + quantity);
+        }
+        int line = find(productId);
+        if (line >= 0) {
+            setQuantity(line, Math.addExact(quantities[line], quantity));
+            return;
+        }
+        if (size == productIds.length) {
+            grow();
+        }
+        line = size++;
+        productIds[line] = productId;
+        quantities[line] = quantity;
+        unitPrices[line] = toKopecks(unitPrice);
+        insertSlot(productId, line);
+        totalItems += quantity;
+        totalAmount += unitPrices[line] * quantity;
+    }
+
+    // Позиция с ценой уже в копейках (восстановление из хранилища)
+    void addLine(long productId, int quantity, long unitPriceKopecks) {
+        add(productId, quantity, BigDecimal.valueOf(unitPriceKopecks, 2));
+    }
+
+    // Количество 0 и меньше удаляет позицию
+    public boolean update(long productId, int quantity) {
+        if (quantity <= 0) {
+            return remove(productId);
+        }
+        int line = find(productId);
+        if (line < 0) {
+            return false;
+        }
+        setQuantity(line, quantity);
+        return true;
+    }
+
+    public boolean remove(long productId) {
+        int line = find(productId);
+        if (line < 0) {
+            return false;
+        }
+        totalItems -= quantities[line];
+        totalAmount -= unitPrices[line] * quantities[line];
+
+        // На место удаленной позиции переносим последнюю
+        int last = --size;
+        if (line != last) {
+            productIds[line] = productIds[last];
+            quantities[line] = quantities[last];
+            unitPrices[line] = unitPrices[last];
+        }
+        rebuildSlots();
+        return true;
+    }
+
+    public void clear() {
+        size = 0;
+        totalItems = 0;
+        totalAmount = 0;
+        Arrays.fill(slots, 0);
+    }
+
+    public int quantity(long productId) {
+        int line = find(productId);
+        return line >= 0 ? quantities[line] : 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getTotalItems() {
+        return totalItems;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return BigDecimal.valueOf(totalAmount, 2);
+    }
+
+    // Позиции в порядке добавления (после удаления порядок может меняться)
+    public List<CartLine> lines() {
+        List<CartLine> lines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            lines.add(new CartLine(productIds[i], quantities[i], BigDecimal.valueOf(unitPrices[i], 2)));
+        }
+        return lines;
+    }
+
+    public Cart copy() {
+        Cart copy = new Cart();
+        copy.productIds = productIds.clone();
+        copy.quantities = quantities.clone();
+        copy.unitPrices = unitPrices.clone();
+        copy.slots = slots.clone();
+        copy.size = size;
+        copy.totalItems = totalItems;
+        copy.totalAmount = totalAmount;
+        return copy;
+    }
+
+    // Доступ к позициям по номеру для кодирования без промежуточных объектов
+    long productIdAt(int line) {
+        return productIds[line];
+    }
+
+    int quantityAt(int line) {
+        return quantities[line];
+    }
+
+    long unitPriceKopecksAt(int line) {
+        return unitPrices[line];
+    }
+
+    private void setQuantity(int line, int quantity) {
+        totalItems += quantity - quantities[line];
+        totalAmount += unitPrices[line] * (quantity - quantities[line]);
+        quantities[line] = quantity;
+    }
+
+    private int find(long productId) {
+        int mask = slots.length - 1;
+        for (int slot = hash(productId) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int line = slots[slot] - 1;
+            if (productIds[line] == productId) {
+                return line;
+            }
+        }
+        return -1;
+    }
+
+    private void insertSlot(long productId, int line) {
+        int mask = slots.length - 1;
+        int slot = hash(productId) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = line + 1;
+    }
+
+    private void rebuildSlots() {
+        Arrays.fill(slots, 0);
+        for (int i = 0; i < size; i++) {
+            insertSlot(productIds[i], i);
+        }
+    }
+
+    private void grow() {
+        int capacity = productIds.length * 2;
+        productIds = Arrays.copyOf(productIds, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        unitPrices = Arrays.copyOf(unitPrices, capacity);
+        // Заполненность индекса не больше половины
+        slots = new int[capacity * 2];
+        rebuildSlots();
+    }
+
+    private static int hash(long productId) {
+        long h = productId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long toKopecks(BigDecimal price) {
+        return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
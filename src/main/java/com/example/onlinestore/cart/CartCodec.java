@@ -0,0 +1,109 @@
+package com.example.onlinestore.cart;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+// Двоичный формат корзины: число позиций, затем для каждой
+// id товара, количество и цена в копейках. Все числа - varint
+public final class CartCodec {
+
+    private CartCodec() {}
+
+    public static byte[] encode(Cart cart) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 + cart.size() * 12);
+        writeVarLong(out, cart.size());
+        for (int i = 0; i < cart.size(); i++) {
+            writeVarLong(out, cart.productIdAt(i));
+            writeVarLong(out, cart.quantityAt(i));
+            writeVarLong(out, cart.unitPriceKopecksAt(i));
+        }
+        return out.toByteArray();
+    }
+
+    public static Cart decode(byte[] data) {
+        Reader in = new Reader(data);
+        Cart cart = new Cart();
+        long lines = in.readVarLong();
+        for (long i = 0; i < lines; i++) {
+            long productId = in.readVarLong();
+            int quantity = (int) in.readVarLong();
+            long unitPrice = in.readVarLong();
+            cart.addLine(productId, quantity, unitPrice);
+        }
+        return cart;
+    }
+
+    // Компактный формат без цен (cookie): число позиций, затем пары
+    // "разница с предыдущим id, количество" в порядке возрастания id
+    public static byte[] encodeQuantities(Cart cart) {
+        long[] ids = new long[cart.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = cart.productIdAt(i);
+        }
+        Arrays.sort(ids);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 + ids.length * 4);
+        writeVarLong(out, ids.length);
+        long previous = 0;
+        for (long id : ids) {
+            writeVarLong(out, id - previous);
+            writeVarLong(out, cart.quantity(id));
+            previous = id;
+        }
+        return out.toByteArray();
+    }
+
+    // Цены в такой корзине нулевые - их подставляет ShoppingCartService из каталога
+    public static Cart decodeQuantities(byte[] data, int from, int to) {
+        Reader in = new Reader(data, from, to);
+        Cart cart = new Cart();
+        long lines = in.readVarLong();
+        long productId = 0;
+        for (long i = 0; i < lines; i++) {
+            productId += in.readVarLong();
+            cart.addLine(productId, (int) in.readVarLong(), 0);
+        }
+        return cart;
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Отрицательное значение в корзине: " + value);
+        }
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static final class Reader {
+        private final byte[] data;
+        private final int limit;
+        private int position;
+
+        Reader(byte[] data) {
+            this(data, 0, data.length);
+        }
+
+        Reader(byte[] data, int from, int to) {
+            this.data = data;
+            this.position = from;
+            this.limit = to;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= limit) {
+                    throw new IllegalArgumentException("Повреждены данные корзины");
+                }
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Повреждены данные корзины");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.onlinestore.cart;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+// Id корзины текущего запроса из cookie CART_ID. Корзина не привязана к сессии,
+// поэтому запрос может обслужить любой узел
+@Component
+public class CartIdResolver {
+
+    public static final String COOKIE_NAME = "CART_ID";
+    private static final int MAX_AGE_SECONDS = 30 * 24 * 3600;
+    private static final Pattern ID_PATTERN = Pattern.compile("[0-9a-f]{8}(-[0-9a-f]{4}){3}-[0-9a-f]{12}");
+    private static final String REQUEST_ATTRIBUTE = CartIdResolver.class.getName() + ".cartId";
+
+    // Id корзины или null, если у посетителя ее еще нет
+    public String find() {
+        HttpServletRequest request = currentRequest();
+        if (request == null) {
+            return null;
+        }
+        Object created = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (created != null) {
+            return (String) created;
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE_NAME.equals(cookie.getName()) && ID_PATTERN.matcher(cookie.getValue()).matches()) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    // Id корзины; при первом изменении корзины выдается новый cookie
+    public String getOrCreate() {
+        String cartId = find();
+        if (cartId != null) {
+            return cartId;
+        }
+        ServletRequestAttributes attributes = currentAttributes();
+        if (attributes == null || attributes.getResponse() == null) {
+            throw new IllegalStateException("Корзина доступна только в рамках HTTP-запроса");
+        }
+        cartId = UUID.randomUUID().toString();
+        attributes.getRequest().setAttribute(REQUEST_ATTRIBUTE, cartId);
+
+        Cookie cookie = new Cookie(COOKIE_NAME, cartId);
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge(MAX_AGE_SECONDS);
+        cookie.setAttribute("SameSite", "Lax");
+        HttpServletResponse response = attributes.getResponse();
+        response.addCookie(cookie);
+        return cartId;
+    }
+
+    private HttpServletRequest currentRequest() {
+        ServletRequestAttributes attributes = currentAttributes();
+        return attributes != null ? attributes.getRequest() : null;
+    }
+
+    private ServletRequestAttributes currentAttributes() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servlet ? servlet : null;
+    }
+}
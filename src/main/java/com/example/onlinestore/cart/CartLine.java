@@ -0,0 +1,11 @@
+package com.example.onlinestore.cart;
+
+import java.math.BigDecimal;
+
+// Позиция корзины: товар, количество и цена на момент добавления
+public record CartLine(long productId, int quantity, BigDecimal unitPrice) {
+
+    public BigDecimal getTotalPrice() {
+        return unitPrice.multiply(BigDecimal.valueOf(quantity));
+    }
+}
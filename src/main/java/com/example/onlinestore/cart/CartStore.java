@@ -0,0 +1,25 @@
+package com.example.onlinestore.cart;
+
+import java.util.function.Consumer;
+
+// Хранилище корзин по id из cookie. Реализация выбирается свойством app.cart.store
+public interface CartStore {
+
+    // Копия корзины или null, если корзины нет
+    Cart find(String cartId);
+
+    // Атомарное изменение корзины; отсутствующая корзина создается пустой
+    void update(String cartId, Consumer<Cart> change);
+
+    void delete(String cartId);
+
+    // true - корзина берется из текущего запроса, cartId не используется
+    default boolean isRequestBound() {
+        return false;
+    }
+
+    // false - хранилище не сохраняет цены, они берутся из каталога
+    default boolean storesPrices() {
+        return true;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.onlinestore.cart;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.function.Consumer;
+
+// Корзина целиком в cookie CART: id товаров и количества (CartCodec.encodeQuantities)
+// и HMAC-SHA256 подпись, base64url. На сервере ничего не хранится,
+// цены подставляются из каталога. Хранилище работает только с корзиной текущего запроса
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "cookie")
+public class CookieCartStore implements CartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CookieCartStore.class);
+
+    public static final String COOKIE_NAME = "CART";
+    private static final byte VERSION = 1;
+    private static final int TAG_LENGTH = 16;
+    // Ограничение браузеров - около 4 КБ на cookie вместе с именем и атрибутами
+    private static final int MAX_COOKIE_LENGTH = 3800;
+    private static final int MAX_AGE_SECONDS = 30 * 24 * 3600;
+    private static final String REQUEST_ATTRIBUTE = CookieCartStore.class.getName() + ".cart";
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+
+    public CookieCartStore(@Value("${app.cart.cookie-secret:}") String secret) {
+        byte[] keyBytes;
+        if (secret.isEmpty()) {
+            // Корзины не переживут перезапуск и не будут читаться другими узлами
+            log.warn("app.cart.cookie-secret is not set, using a random key");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, "HmacSHA256");
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    @Override
+    public Cart find(String cartId) {
+        Cart cart = current();
+        return cart != null && !cart.isEmpty() ? cart.copy() : null;
+    }
+
+    @Override
+    public void update(String cartId, Consumer<Cart> change) {
+        ServletRequestAttributes attributes = attributes();
+        if (attributes == null || attributes.getResponse() == null) {
+            throw new IllegalStateException("Корзина в cookie доступна только в рамках HTTP-запроса");
+        }
+        Cart cart = current();
+        cart = cart != null ? cart.copy() : new Cart();
+        change.accept(cart);
+
+        String value = encode(cart);
+        if (value.length() > MAX_COOKIE_LENGTH) {
+            throw new IllegalStateException("Слишком много товаров в корзине");
+        }
+        attributes.getRequest().setAttribute(REQUEST_ATTRIBUTE, cart);
+        writeCookie(attributes.getResponse(), value, MAX_AGE_SECONDS);
+    }
+
+    @Override
+    public void delete(String cartId) {
+        ServletRequestAttributes attributes = attributes();
+        if (attributes == null || attributes.getResponse() == null) {
+            return;
+        }
+        attributes.getRequest().setAttribute(REQUEST_ATTRIBUTE, new Cart());
+        writeCookie(attributes.getResponse(), "", 0);
+    }
+
+    @Override
+    public boolean isRequestBound() {
+        return true;
+    }
+
+    @Override
+    public boolean storesPrices() {
+        return false;
+    }
+
+    // Корзина разбирается один раз за запрос
+    private Cart current() {
+        ServletRequestAttributes attributes = attributes();
+        if (attributes == null) {
+            return null;
+        }
+        HttpServletRequest request = attributes.getRequest();
+        Object cached = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (cached != null) {
+            return (Cart) cached;
+        }
+        Cart cart = new Cart();
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    Cart decoded = decode(cookie.getValue());
+                    if (decoded != null) {
+                        cart = decoded;
+                    }
+                    break;
+                }
+            }
+        }
+        request.setAttribute(REQUEST_ATTRIBUTE, cart);
+        return cart;
+    }
+
+    String encode(Cart cart) {
+        byte[] payload = CartCodec.encodeQuantities(cart);
+        byte[] data = new byte[1 + payload.length + TAG_LENGTH];
+        data[0] = VERSION;
+        System.arraycopy(payload, 0, data, 1, payload.length);
+        byte[] tag = sign(data, 1 + payload.length);
+        System.arraycopy(tag, 0, data, 1 + payload.length, TAG_LENGTH);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(data);
+    }
+
+    // null - cookie поврежден или подпись не совпала: корзина считается пустой
+    Cart decode(String value) {
+        if (value == null || value.isEmpty() || value.length() > MAX_COOKIE_LENGTH) {
+            return null;
+        }
+        byte[] data;
+        try {
+            data = Base64.getUrlDecoder().decode(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int payloadEnd = data.length - TAG_LENGTH;
+        if (payloadEnd < 1 || data[0] != VERSION) {
+            return null;
+        }
+        byte[] expected = sign(data, payloadEnd);
+        if (!MessageDigest.isEqual(Arrays.copyOf(expected, TAG_LENGTH),
+                Arrays.copyOfRange(data, payloadEnd, data.length))) {
+            return null;
+        }
+        try {
+            // Разбор прямо из буфера, после байта версии
+            return CartCodec.decodeQuantities(data, 1, payloadEnd);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(byte[] data, int length) {
+        Mac mac = macs.get();
+        mac.update(data, 0, length);
+        return mac.doFinal();
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 недоступен", e);
+        }
+    }
+
+    private void writeCookie(HttpServletResponse response, String value, int maxAge) {
+        Cookie cookie = new Cookie(COOKIE_NAME, value);
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge(maxAge);
+        cookie.setAttribute("SameSite", "Lax");
+        response.addCookie(cookie);
+    }
+
+    private ServletRequestAttributes attributes() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servlet ? servlet : null;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.onlinestore.cart;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Корзины в памяти узла. Брошенные корзины удаляются по TTL,
+// при превышении лимита - самые давно использованные
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryCartStore implements CartStore {
+
+    private final int maxCarts;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public InMemoryCartStore(@Value("${app.cart.max-carts:100000}") int maxCarts,
+                             @Value("${app.cart.ttl-hours:72}") long ttlHours) {
+        this.maxCarts = maxCarts;
+        this.ttlMillis = ttlHours * 3600 * 1000;
+    }
+
+    @Override
+    public Cart find(String cartId) {
+        Entry entry = entries.get(cartId);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            entry.lastAccess = System.currentTimeMillis();
+            return entry.cart.copy();
+        }
+    }
+
+    @Override
+    public void update(String cartId, Consumer<Cart> change) {
+        Entry entry = entries.computeIfAbsent(cartId, id -> new Entry());
+        synchronized (entry) {
+            entry.lastAccess = System.currentTimeMillis();
+            change.accept(entry.cart);
+        }
+        if (entries.size() > maxCarts) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    @Override
+    public void delete(String cartId) {
+        entries.remove(cartId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.sweep-interval-ms:600000}")
+    public void expire() {
+        long threshold = System.currentTimeMillis() - ttlMillis;
+        entries.entrySet().removeIf(e -> e.getValue().lastAccess < threshold);
+    }
+
+    // Освобождаем с запасом, чтобы не сортировать корзины на каждой вставке
+    private synchronized void evictLeastRecentlyUsed() {
+        int excess = entries.size() - maxCarts;
+        if (excess <= 0) {
+            return;
+        }
+        excess += maxCarts / 10;
+        List<Map.Entry<String, Long>> candidates = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            candidates.add(Map.entry(e.getKey(), e.getValue().lastAccess));
+        }
+        candidates.sort(Map.Entry.comparingByValue(Comparator.naturalOrder()));
+        for (int i = 0; i < excess && i < candidates.size(); i++) {
+            entries.remove(candidates.get(i).getKey());
+        }
+    }
+
+    private static final class Entry {
+        private final Cart cart = new Cart();
+        private volatile long lastAccess = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.onlinestore.cart;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Корзины в таблице carts, общей для всех узлов. Каждое изменение сразу
+// записывается в БД условным UPDATE по номеру версии строки: если корзину
+// за это время изменил другой узел, она перечитывается и изменение
+// применяется заново.
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "jdbc")
+public class JdbcCartStore implements CartStore {
+
+    private static final String SELECT_SQL = "SELECT data, version FROM carts WHERE cart_id = ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO carts (cart_id, data, version, updated_at) VALUES (?, ?, 0, ?)";
+    private static final String UPDATE_SQL =
+            "UPDATE carts SET data = ?, version = version + 1, updated_at = ? WHERE cart_id = ? AND version = ?";
+    private static final String DELETE_SQL = "DELETE FROM carts WHERE cart_id = ?";
+
+    private static final int MAX_ATTEMPTS = 10;
+    private static final int LOCK_STRIPES = 64;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.cart.ttl-hours:72}")
+    private long ttlHours;
+
+    // Запросы одного узла к одной корзине выполняются по очереди,
+    // чтобы не тратить попытки на конфликты между собой
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public JdbcCartStore() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public Cart find(String cartId) {
+        VersionedCart stored = load(cartId);
+        return stored != null ? stored.cart : null;
+    }
+
+    @Override
+    public void update(String cartId, Consumer<Cart> change) {
+        synchronized (lock(cartId)) {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                VersionedCart stored = load(cartId);
+                Cart cart = stored != null ? stored.cart : new Cart();
+                change.accept(cart);
+                byte[] data = CartCodec.encode(cart);
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+                if (stored == null) {
+                    try {
+                        jdbcTemplate.update(INSERT_SQL, cartId, data, now);
+                        return;
+                    } catch (DuplicateKeyException e) {
+                        // Корзину одновременно создал другой узел
+                        continue;
+                    }
+                }
+                if (jdbcTemplate.update(UPDATE_SQL, data, now, cartId, stored.version) == 1) {
+                    return;
+                }
+            }
+        }
+        throw new IllegalStateException("Не удалось сохранить корзину: слишком много одновременных изменений");
+    }
+
+    @Override
+    public void delete(String cartId) {
+        jdbcTemplate.update(DELETE_SQL, cartId);
+    }
+
+    // Удаление корзин, которые давно не менялись
+    @Scheduled(fixedDelayString = "${app.cart.sweep-interval-ms:600000}")
+    public void expire() {
+        Timestamp threshold = Timestamp.valueOf(LocalDateTime.now().minusHours(ttlHours));
+        jdbcTemplate.update("DELETE FROM carts WHERE updated_at < ?", threshold);
+    }
+
+    private VersionedCart load(String cartId) {
+        List<VersionedCart> rows = jdbcTemplate.query(SELECT_SQL,
+                (rs, rowNum) -> new VersionedCart(CartCodec.decode(rs.getBytes("data")), rs.getLong("version")),
+                cartId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private Object lock(String cartId) {
+        return locks[Math.floorMod(cartId.hashCode(), LOCK_STRIPES)];
+    }
+
+    private record VersionedCart(Cart cart, long version) {
+    }
+}
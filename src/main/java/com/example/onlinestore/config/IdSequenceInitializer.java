@@ -0,0 +1,71 @@
+package com.example.onlinestore.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+// Перевод orders, order_items и payments с AUTO_INCREMENT на пулы id.
+// В MySQL последовательности эмулируются таблицами *_seq (столбец next_val);
+// при старте значение поднимается выше существующих id, чтобы новые id
+// не пересекались со старыми. Выполняется до обработки запросов.
+@Component
+public class IdSequenceInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    public static final int ALLOCATION_SIZE = 50;
+
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "orders_seq", "orders",
+            "order_items_seq", "order_items",
+            "payments_seq", "payments");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Зависимость гарантирует, что схема уже создана/обновлена Hibernate
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void alignSequences() {
+        for (Map.Entry<String, String> entry : SEQUENCES.entrySet()) {
+            String sequence = entry.getKey();
+            String table = entry.getValue();
+            if (!isSequenceTable(sequence)) {
+                // Настоящая последовательность (H2, тесты) - схема создается с нуля
+                continue;
+            }
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+            if (maxId == null) {
+                continue;
+            }
+            // Пул выдает id из диапазона (next_val - ALLOCATION_SIZE, next_val]
+            long minNext = maxId + ALLOCATION_SIZE + 1;
+            int updated = jdbcTemplate.update(
+                    "UPDATE " + sequence + " SET next_val = ? WHERE next_val < ?", minNext, minNext);
+            if (updated > 0) {
+                log.info("Id sequence {} moved past existing ids: {}", sequence, minNext);
+            }
+        }
+    }
+
+    private boolean isSequenceTable(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((Connection connection) -> {
+            try (ResultSet tables = connection.getMetaData().getTables(connection.getCatalog(), null, name, null)) {
+                return tables.next();
+            } catch (SQLException e) {
+                return false;
+            }
+        }));
+    }
+}
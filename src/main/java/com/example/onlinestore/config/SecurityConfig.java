@@ -1,5 +1,6 @@
 package com.example.onlinestore.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -11,14 +12,26 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.csrf.CsrfTokenRepository;
+import org.springframework.security.web.csrf.HttpSessionCsrfTokenRepository;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    @Value("${app.cart.store:memory}")
+    private String cartStore;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+        http.csrf(csrf -> {
+            // Вебхук вызывает сервер ЮKassa, CSRF-токена у него нет.
+            // Содержимому уведомления не доверяем: статус перепроверяется через API ЮKassa
+            csrf.ignoringRequestMatchers("/payment/webhook");
+            csrf.csrfTokenRepository(csrfTokenRepository());
+        });
         http
                 .authorizeHttpRequests(authz -> authz
                         // Публичные пути (доступны всем)
@@ -27,18 +40,25 @@ public class SecurityConfig {
                                 "/css/**",
                                 "/js/**",
                                 "/images/**",
+                                "/media/**",
                                 "/product/**",
                                 "/search",
                                 "/cart/**",
                                 "/order/checkout",
                                 "/order/success/**",
-                                "/payment/success"
+                                "/payment/success",
+                                // Покупатели без учетных записей; владелец заказа
+                                // проверяется в PaymentController по cookie CART_ID
+                                "/payment/create/**",
+                                "/payment/webhook",
+                                "/actuator/health"
                         ).permitAll()
 
                         // Админские пути (требуют аутентификации)
                         .requestMatchers(
                                 "/admin/**",
-                                "/order/admin/**"
+                                "/order/admin/**",
+                                "/actuator/**"
                         ).hasRole("ADMIN")
 
                         // Все остальные пути требуют аутентификации
@@ -61,6 +81,17 @@ public class SecurityConfig {
         return http.build();
     }
 
+    // Хранилище токенов нужно и ProductController: токен входит в ETag страниц каталога
+    @Bean
+    public CsrfTokenRepository csrfTokenRepository() {
+        if ("cookie".equals(cartStore)) {
+            // Корзина в cookie: CSRF-токен тоже в cookie, чтобы анонимные
+            // посетители не получали HTTP-сессию
+            return new CookieCsrfTokenRepository();
+        }
+        return new HttpSessionCsrfTokenRepository();
+    }
+
     @Bean
     public UserDetailsService userDetailsService() {
         UserDetails admin = User.builder()
@@ -0,0 +1,56 @@
+package com.example.onlinestore.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+// HTTP-клиент ЮKassa: собственный пул соединений и таймауты,
+// чтобы медленный шлюз не занимал потоки и соединения бесконечно
+@Configuration
+public class YooKassaClientConfig {
+
+    @Value("${yookassa.api-url:https://api.yookassa.ru/v3}")
+    private String apiUrl;
+
+    @Value("${yookassa.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${yookassa.pending-acquire-timeout-ms:5000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${yookassa.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${yookassa.response-timeout-ms:10000}")
+    private long responseTimeoutMs;
+
+    // Builder из автоконфигурации: в нем уже есть замеры http.client.requests
+    @Bean
+    public WebClient yooKassaWebClient(WebClient.Builder builder) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("yookassa")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(30))
+                .evictInBackground(Duration.ofSeconds(60))
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs));
+
+        return builder
+                .baseUrl(apiUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .build();
+    }
+}
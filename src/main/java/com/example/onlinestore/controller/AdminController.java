@@ -1,16 +1,28 @@
 package com.example.onlinestore.controller;
 
+import com.example.onlinestore.image.ProductImageService;
+import com.example.onlinestore.metrics.LatencyReport;
 import com.example.onlinestore.model.Product;
+import com.example.onlinestore.service.ProductCsvService;
+import com.example.onlinestore.service.ProductImportJob;
 import com.example.onlinestore.service.ProductService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Controller
@@ -20,6 +32,18 @@ public class AdminController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private LoggingSystem loggingSystem;
+
+    @Autowired
+    private LatencyReport latencyReport;
+
+    @Autowired
+    private ProductImageService imageService;
+
+    @Autowired
+    private ProductCsvService csvService;
+
     // Страница со списком всех товаров
     @GetMapping("/products")
     public String adminProducts(Model model) {
@@ -39,6 +63,7 @@ public class AdminController {
     @PostMapping("/products/new")
     public String addProduct(@Valid @ModelAttribute("product") Product product,
                              BindingResult result,
+                             @RequestParam(required = false) MultipartFile imageFile,
                              Model model,
                              RedirectAttributes redirectAttributes) {
 
@@ -47,12 +72,9 @@ public class AdminController {
         }
 
         try {
-            // Устанавливаем значение по умолчанию для изображения, если оно пустое
-            if (product.getImageUrl() == null || product.getImageUrl().trim().isEmpty()) {
-                product.setImageUrl("https://via.placeholder.com/400");
-            }
-
-            productService.saveProduct(product);
+            applyImage(product, imageFile);
+            Product saved = productService.saveProduct(product);
+            imageService.importIfRemote(saved);
             redirectAttributes.addFlashAttribute("successMessage", "Товар успешно добавлен!");
             return "redirect:/admin/products";
         } catch (Exception e) {
@@ -78,6 +100,7 @@ public class AdminController {
     public String updateProduct(@PathVariable Long id,
                                 @Valid @ModelAttribute("product") Product product,
                                 BindingResult result,
+                                @RequestParam(required = false) MultipartFile imageFile,
                                 Model model,
                                 RedirectAttributes redirectAttributes) {
 
@@ -93,14 +116,12 @@ public class AdminController {
                 return "redirect:/admin/products";
             }
 
-            // Устанавливаем значение по умолчанию для изображения, если оно пустое
-            if (product.getImageUrl() == null || product.getImageUrl().trim().isEmpty()) {
-                product.setImageUrl("https://via.placeholder.com/400");
-            }
+            applyImage(product, imageFile);
 
             // Сохраняем товар
             product.setId(id);
-            productService.saveProduct(product);
+            Product saved = productService.saveProduct(product);
+            imageService.importIfRemote(saved);
             redirectAttributes.addFlashAttribute("successMessage", "Товар успешно обновлен!");
             return "redirect:/admin/products";
         } catch (Exception e) {
@@ -109,6 +130,101 @@ public class AdminController {
         }
     }
 
+    // Выгрузка каталога в CSV: строки пишутся в ответ по мере чтения из БД
+    @GetMapping("/products/export")
+    public void exportProducts(HttpServletResponse response) throws IOException {
+        response.setContentType("text/csv; charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.csv\"");
+        PrintWriter writer = response.getWriter();
+        csvService.export(writer);
+        writer.flush();
+    }
+
+    // Форма загрузки каталога из CSV и последние загрузки
+    @GetMapping("/products/import")
+    public String showImportForm(Model model) {
+        model.addAttribute("jobs", csvService.getRecentJobs());
+        model.addAttribute("header", ProductCsvService.HEADER);
+        return "admin/import-products";
+    }
+
+    // Загрузка идет в фоне, прогресс - на странице загрузки
+    @PostMapping("/products/import")
+    public String importProducts(@RequestParam("file") MultipartFile file, RedirectAttributes redirectAttributes) {
+        try {
+            ProductImportJob job = csvService.startImport(file);
+            return "redirect:/admin/products/import/" + job.getId();
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Ошибка при загрузке файла: " + e.getMessage());
+            return "redirect:/admin/products/import";
+        }
+    }
+
+    @GetMapping("/products/import/{jobId}")
+    public String importStatus(@PathVariable String jobId, Model model, RedirectAttributes redirectAttributes) {
+        ProductImportJob job = csvService.getJob(jobId);
+        if (job == null) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Загрузка не найдена");
+            return "redirect:/admin/products/import";
+        }
+        model.addAttribute("job", job);
+        return "admin/import-status";
+    }
+
+    // Отчет об ошибках загрузки в CSV
+    @GetMapping("/products/import/{jobId}/errors")
+    public void importErrors(@PathVariable String jobId, HttpServletResponse response) throws IOException {
+        ProductImportJob job = csvService.getJob(jobId);
+        if (job == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setContentType("text/csv; charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"import-" + jobId + "-errors.csv\"");
+        PrintWriter writer = response.getWriter();
+        csvService.writeErrors(job, writer);
+        writer.flush();
+    }
+
+    // Статистика кэша каталога (для подбора размера и TTL)
+    @GetMapping("/stats/catalog-cache")
+    @ResponseBody
+    public Map<String, Map<String, Long>> catalogCacheStats() {
+        return productService.getCacheStats();
+    }
+
+    // Задержки по маршрутам и зависимостям, счетчики кэша и обращений к БД
+    @GetMapping("/metrics")
+    public String metrics(Model model) {
+        model.addAttribute("latencies", latencyReport.latencies());
+        model.addAttribute("counters", latencyReport.counters());
+        return "admin/metrics";
+    }
+
+    // Смена уровня логгера без перезапуска, например logger=org.hibernate.SQL&level=DEBUG.
+    // Пустой level возвращает уровень из конфигурации
+    @PostMapping("/logging")
+    @ResponseBody
+    public Map<String, String> setLogLevel(@RequestParam String logger,
+                                           @RequestParam(required = false) LogLevel level) {
+        loggingSystem.setLogLevel(logger, level);
+        LogLevel effective = loggingSystem.getLoggerConfiguration(logger).getEffectiveLevel();
+        return Map.of("logger", logger, "level", String.valueOf(effective));
+    }
+
+    // Загруженный файл заменяет URL; внешний URL скачивается в фоне после сохранения,
+    // без изображения на страницах показывается локальная заглушка
+    private void applyImage(Product product, MultipartFile imageFile) throws IOException {
+        if (imageFile != null && !imageFile.isEmpty()) {
+            product.setImageUrl(imageService.store(imageFile));
+        } else if (product.getImageUrl() == null || product.getImageUrl().trim().isEmpty()) {
+            product.setImageUrl(null);
+        } else {
+            product.setImageUrl(product.getImageUrl().trim());
+        }
+    }
+
     // Удаление товара
     @PostMapping("/products/delete/{id}")
     public String deleteProduct(@PathVariable Long id, RedirectAttributes redirectAttributes) {
@@ -2,6 +2,8 @@ package com.example.onlinestore.controller;
 
 import com.example.onlinestore.service.OrderService;
 import com.example.onlinestore.service.ProductService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -12,6 +14,8 @@ import java.math.BigDecimal;
 @Controller
 public class AuthController {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+
     @Autowired
     private ProductService productService;
 
@@ -32,7 +36,7 @@ public class AuthController {
     public String adminDashboard(Model model) {
         try {
             // Безопасное получение статистики
-            Long totalProducts = (long) productService.getAllProducts().size();
+            Long totalProducts = productService.countProducts();
             Long totalOrders = orderService.getTotalOrdersCount();
             BigDecimal totalRevenue = orderService.getTotalRevenue();
             Long pendingOrders = orderService.getPendingOrdersCount();
@@ -45,7 +49,7 @@ public class AuthController {
             model.addAttribute("recentOrders", recentOrders);
 
         } catch (Exception e) {
-            System.err.println("Error in admin dashboard: " + e.getMessage());
+            log.error("Error in admin dashboard", e);
             // В случае ошибки устанавливаем значения по умолчанию
             model.addAttribute("totalProducts", 0);
             model.addAttribute("totalOrders", 0);
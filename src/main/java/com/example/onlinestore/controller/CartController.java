@@ -28,6 +28,10 @@ public class CartController {
     @PostMapping("/add")
     public String addToCart(@RequestParam Long productId,
                             @RequestParam(defaultValue = "1") Integer quantity) {
+        // Корзина не принимает позиции с количеством 0 и меньше
+        if (quantity <= 0) {
+            return "redirect:/cart";
+        }
         productService.getProductById(productId).ifPresent(product -> {
             cartService.addProduct(product, quantity);
         });
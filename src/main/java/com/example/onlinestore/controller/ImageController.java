@@ -0,0 +1,63 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.image.ProductImageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+// Отдача изображений товаров без копирования через кучу JVM:
+// Tomcat NIO отправляет файл через sendfile, иначе - FileChannel.transferTo
+@Controller
+public class ImageController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private ProductImageService imageService;
+
+    @GetMapping(ProductImageService.URL_PREFIX + "{name}")
+    public void image(@PathVariable String name,
+                      HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        ProductImageService.ImageFile image = imageService.find(name);
+        if (image == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long size = Files.size(image.path());
+        response.setContentType(image.contentType());
+        response.setContentLengthLong(size);
+        // Имя варианта содержит хэш исходника, поэтому его можно кэшировать навсегда
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                image.immutable() ? "public, max-age=31536000, immutable" : "no-cache");
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, image.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(image.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, out);
+            }
+        }
+    }
+}
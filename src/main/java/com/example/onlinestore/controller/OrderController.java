@@ -1,38 +1,50 @@
 package com.example.onlinestore.controller;
 
+import com.example.onlinestore.cart.CartIdResolver;
+import com.example.onlinestore.csv.Csv;
+import com.example.onlinestore.dto.OrderSummary;
 import com.example.onlinestore.model.Order;
 import com.example.onlinestore.model.OrderStatus; // Добавляем этот импорт
 import com.example.onlinestore.service.OrderService;
 import com.example.onlinestore.service.ShoppingCartService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 
 @Controller
 @RequestMapping("/order")
 public class OrderController {
 
+    private static final Logger log = LoggerFactory.getLogger(OrderController.class);
+
     @Autowired
     private ShoppingCartService cartService;
 
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private CartIdResolver cartIdResolver;
+
     // Форма оформления заказа - ДОЛЖЕН БЫТЬ GET
     @GetMapping("/checkout")
     public String showCheckoutForm(Model model) {
-        System.out.println("=== CHECKOUT GET called ===");
-        System.out.println("Cart items: " + cartService.getCartItems().size());
-        System.out.println("Cart total: " + cartService.getTotalPrice());
-
-        if (cartService.getCartItems().isEmpty()) {
-            System.out.println("Cart is empty, redirecting to cart");
+        if (cartService.isEmpty()) {
             return "redirect:/cart";
         }
 
@@ -55,17 +67,13 @@ public class OrderController {
                                   Model model,
                                   RedirectAttributes redirectAttributes) {
 
-        System.out.println("=== CHECKOUT POST called ===");
-        System.out.println("Customer: " + orderForm.getCustomerName());
-        System.out.println("Email: " + orderForm.getCustomerEmail());
-
-        if (cartService.getCartItems().isEmpty()) {
+        if (cartService.isEmpty()) {
             redirectAttributes.addFlashAttribute("errorMessage", "Корзина пуста");
             return "redirect:/cart";
         }
 
         if (result.hasErrors()) {
-            System.out.println("Form has errors: " + result.getAllErrors());
+            log.debug("Checkout form has errors: {}", result.getErrorCount());
             model.addAttribute("cartItems", cartService.getCartItems());
             model.addAttribute("totalPrice", cartService.getTotalPrice());
             model.addAttribute("cartItemsCount", cartService.getTotalItems());
@@ -74,21 +82,20 @@ public class OrderController {
 
         try {
             Order order = orderService.createOrderFromCart(
-                    cartService,
+                    cartService.currentCartId(),
                     orderForm.getCustomerName(),
                     orderForm.getCustomerEmail(),
-                    orderForm.getCustomerAddress()
+                    orderForm.getCustomerAddress(),
+                    // Cookie CART_ID выдается и при корзине в cookie: по нему проверяется оплата
+                    cartIdResolver.getOrCreate()
             );
 
-            System.out.println("Order created successfully: " + order.getId());
-
             redirectAttributes.addFlashAttribute("successMessage",
                     "Заказ №" + order.getId() + " успешно оформлен!");
             return "redirect:/order/success/" + order.getId();
 
         } catch (Exception e) {
-            System.out.println("Error creating order: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Error creating order: {}", e.getMessage(), e);
 
             model.addAttribute("errorMessage", "Ошибка при оформлении заказа: " + e.getMessage());
             model.addAttribute("cartItems", cartService.getCartItems());
@@ -128,10 +135,22 @@ public class OrderController {
 
     // Список всех заказов (для админки)
     @GetMapping("/admin")
-    public String orderList(Model model) {
+    public String orderList(@RequestParam(required = false) String q,
+                            @RequestParam(required = false) Long before,
+                            Model model) {
         try {
-            List<Order> orders = orderService.getAllOrders();
+            List<OrderSummary> orders;
+            if (q != null && !q.isBlank()) {
+                orders = orderService.searchOrders(q, before, OrderService.DEFAULT_PAGE_SIZE);
+                model.addAttribute("searchQuery", q);
+            } else {
+                orders = orderService.getOrderSummaries(before, OrderService.DEFAULT_PAGE_SIZE);
+            }
+            if (orders.size() == OrderService.DEFAULT_PAGE_SIZE) {
+                model.addAttribute("nextCursor", orders.get(orders.size() - 1).getId());
+            }
             model.addAttribute("orders", orders);
+            model.addAttribute("totalOrders", orderService.getTotalOrdersCount());
             model.addAttribute("cartItemsCount", cartService.getTotalItems());
             return "admin/orders";
         } catch (Exception e) {
@@ -140,11 +159,43 @@ public class OrderController {
         }
     }
 
+    // Выгрузка заказов за период в CSV (для админки).
+    // Строки пишутся в ответ по мере чтения из БД
+    @GetMapping("/admin/export")
+    public void exportOrders(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                             HttpServletResponse response) throws IOException {
+        response.setContentType("text/csv; charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"orders-" + from + "-" + to + ".csv\"");
+
+        PrintWriter writer = response.getWriter();
+        writer.println("id,date,customer,email,phone,address,total,status");
+        orderService.forEachOrderByDateRange(from.atStartOfDay(), to.atTime(LocalTime.MAX), order -> {
+            writer.print(order.getId());
+            writer.print(',');
+            writer.print(order.getOrderDate());
+            writer.print(',');
+            writer.print(Csv.escape(order.getCustomerName()));
+            writer.print(',');
+            writer.print(Csv.escape(order.getCustomerEmail()));
+            writer.print(',');
+            writer.print(Csv.escape(order.getCustomerPhone()));
+            writer.print(',');
+            writer.print(Csv.escape(order.getCustomerAddress()));
+            writer.print(',');
+            writer.print(order.getTotalAmount());
+            writer.print(',');
+            writer.println(order.getStatus());
+        });
+        writer.flush();
+    }
+
     // Детали конкретного заказа (для админки)
     @GetMapping("/admin/{id}")
     public String orderDetails(@PathVariable Long id, Model model) {
         try {
-            Order order = orderService.getOrderById(id);
+            Order order = orderService.getOrderWithItems(id);
             model.addAttribute("order", order);
             model.addAttribute("cartItemsCount", cartService.getTotalItems());
             model.addAttribute("orderStatuses", OrderStatus.values());
@@ -186,7 +237,7 @@ public class OrderController {
     @PostMapping("/repeat/{orderId}")
     public String repeatOrder(@PathVariable Long orderId, RedirectAttributes redirectAttributes) {
         try {
-            Order originalOrder = orderService.getOrderById(orderId);
+            Order originalOrder = orderService.getOrderWithItems(orderId);
 
             // Добавляем товары из заказа в корзину
             originalOrder.getItems().forEach(item -> {
@@ -208,7 +259,7 @@ public class OrderController {
     @GetMapping("/history")
     public String orderHistory(@RequestParam(required = false) String email, Model model) {
         if (email != null && !email.trim().isEmpty()) {
-            List<Order> userOrders = orderService.getOrdersByEmail(email);
+            List<OrderSummary> userOrders = orderService.getOrdersByEmail(email);
             model.addAttribute("userOrders", userOrders);
             model.addAttribute("searchedEmail", email);
         }
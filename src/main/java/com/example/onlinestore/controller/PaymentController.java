@@ -1,18 +1,24 @@
 package com.example.onlinestore.controller;
 
+import com.example.onlinestore.cart.CartIdResolver;
 import com.example.onlinestore.dto.YooKassaWebhookRequest;
 import com.example.onlinestore.model.Order;
 import com.example.onlinestore.model.Payment;
 import com.example.onlinestore.model.PaymentStatus; // Добавляем импорт
 import com.example.onlinestore.service.OrderService;
 import com.example.onlinestore.service.PaymentService;
+import com.example.onlinestore.webhook.WebhookProcessor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import reactor.core.publisher.Mono;
+
+import java.io.UncheckedIOException;
 
 @Controller
 @RequestMapping("/payment")
@@ -24,34 +30,55 @@ public class PaymentController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private WebhookProcessor webhookProcessor;
+
+    @Autowired
+    private CartIdResolver cartIdResolver;
+
     @Value("${app.base-url:http://localhost:8080}")
     private String baseUrl;
 
-    // Инициирование платежа
+    // Инициирование платежа. Ответ формируется асинхронно: поток Tomcat
+    // не ждет ответа ЮKassa
     @PostMapping("/create/{orderId}")
-    public String createPayment(@PathVariable Long orderId,
-                                RedirectAttributes redirectAttributes) {
+    public Mono<String> createPayment(@PathVariable Long orderId,
+                                      RedirectAttributes redirectAttributes) {
+        Order order;
         try {
-            Order order = orderService.getOrderById(orderId);
-            Payment payment = paymentService.createPayment(order);
-
-            // Перенаправляем на страницу оплаты ЮKassa
-            return "redirect:" + payment.getConfirmationUrl();
-
+            order = orderService.getOrderById(orderId);
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage",
                     "Ошибка при создании платежа: " + e.getMessage());
-            return "redirect:/order/success/" + orderId;
+            return Mono.just("redirect:/order/success/" + orderId);
         }
+        // Оплатить заказ может только посетитель, который его оформил
+        String visitorId = cartIdResolver.find();
+        if (visitorId == null || !visitorId.equals(order.getVisitorId())) {
+            redirectAttributes.addFlashAttribute("errorMessage",
+                    "Ошибка при создании платежа: заказ оформлен в другом браузере");
+            return Mono.just("redirect:/order/success/" + orderId);
+        }
+
+        return paymentService.createPayment(order)
+                // Перенаправляем на страницу оплаты ЮKassa
+                .map(payment -> "redirect:" + payment.getConfirmationUrl())
+                .onErrorResume(e -> {
+                    redirectAttributes.addFlashAttribute("errorMessage",
+                            "Ошибка при создании платежа: " + e.getMessage());
+                    return Mono.just("redirect:/order/success/" + orderId);
+                });
     }
 
-    // Страница успешной оплаты (callback от ЮKassa)
+    // Страница успешной оплаты (callback от ЮKassa).
+    // Параметр запроса ничего не подтверждает: событие проходит через журнал вебхуков,
+    // и WebhookProcessor применяет статус только после проверки через API ЮKassa
     @GetMapping("/success")
     public String paymentSuccess(@RequestParam(required = false) String paymentId,
                                  Model model) {
         try {
             if (paymentId != null) {
-                paymentService.updatePaymentStatus(paymentId, PaymentStatus.SUCCEEDED);
+                webhookProcessor.submit(paymentId, PaymentStatus.SUCCEEDED);
                 model.addAttribute("paymentId", paymentId);
             }
 
@@ -77,35 +104,38 @@ public class PaymentController {
         return "payment/cancel";
     }
 
-    // Вебхук для уведомлений от ЮKassa
+    // Вебхук для уведомлений от ЮKassa. Уведомление записывается в журнал
+    // и применяется в фоне, ответ отправляется сразу после записи.
+    // Уведомление не подписано: статус из него не применяется, WebhookProcessor
+    // перед применением запрашивает настоящий статус у API ЮKassa
     @PostMapping("/webhook")
     @ResponseBody
     public ResponseEntity<String> handleWebhook(@RequestBody YooKassaWebhookRequest webhookRequest) {
+        PaymentStatus status;
+        String paymentId;
         try {
-            String paymentId = webhookRequest.getObject().getId();
-            String status = webhookRequest.getObject().getStatus();
-
-            // Обновляем статус платежа в зависимости от уведомления
-            switch (status) {
-                case "succeeded":
-                    paymentService.updatePaymentStatus(paymentId, PaymentStatus.SUCCEEDED);
-                    break;
-                case "canceled":
-                    paymentService.updatePaymentStatus(paymentId, PaymentStatus.CANCELED);
-                    break;
-                case "waiting_for_capture":
-                    paymentService.updatePaymentStatus(paymentId, PaymentStatus.WAITING_FOR_CAPTURE);
-                    break;
-                default:
-                    // Для других статусов можно добавить обработку
-                    break;
-            }
-
-            return ResponseEntity.ok().body("OK");
-
+            paymentId = webhookRequest.getObject().getId();
+            status = switch (webhookRequest.getObject().getStatus()) {
+                case "succeeded" -> PaymentStatus.SUCCEEDED;
+                case "canceled" -> PaymentStatus.CANCELED;
+                case "waiting_for_capture" -> PaymentStatus.WAITING_FOR_CAPTURE;
+                // Для других статусов можно добавить обработку
+                default -> null;
+            };
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
+        if (status == null || paymentId == null || paymentId.isBlank()) {
+            return ResponseEntity.ok().body("OK");
+        }
+
+        try {
+            webhookProcessor.submit(paymentId, status);
+            return ResponseEntity.ok().body("OK");
+        } catch (UncheckedIOException e) {
+            // ЮKassa повторит уведомление
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Error: " + e.getMessage());
+        }
     }
 
     // Проверка статуса платежа
@@ -1,12 +1,22 @@
 package com.example.onlinestore.controller;
 
+import com.example.onlinestore.dto.ProductPage;
 import com.example.onlinestore.model.Product;
 import com.example.onlinestore.service.ProductService;
 import com.example.onlinestore.service.ShoppingCartService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.csrf.CsrfTokenRepository;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.ZoneId;
+import java.util.Objects;
+import java.util.Optional;
 
 @Controller
 public class ProductController {
@@ -17,29 +27,78 @@ public class ProductController {
     @Autowired
     private ShoppingCartService cartService;
 
+    @Autowired
+    private CsrfTokenRepository csrfTokenRepository;
+
     @GetMapping("/")
-    public String home(Model model) {
-        model.addAttribute("products", productService.getAllProducts());
+    public String home(@RequestParam(required = false) Long after,
+                       @RequestParam(required = false) Long before,
+                       @RequestParam(defaultValue = "" + ProductService.DEFAULT_PAGE_SIZE) int size,
+                       ServletWebRequest webRequest,
+                       Model model) {
+        if (notModified(webRequest, "c" + productService.getCatalogVersion(),
+                productService.getCatalogLastModified())) {
+            return null;
+        }
+        ProductPage page = productService.getProductPage(after, before, size);
+        model.addAttribute("page", page);
+        model.addAttribute("products", page.getItems());
+        model.addAttribute("totalProducts", productService.countProducts());
         model.addAttribute("cartItemsCount", cartService.getTotalItems());
         return "index";
     }
 
     @GetMapping("/product/{id}")
-    public String productDetails(@PathVariable Long id, Model model) {
-        return productService.getProductById(id)
-                .map(product -> {
-                    model.addAttribute("product", product);
-                    model.addAttribute("cartItemsCount", cartService.getTotalItems());
-                    return "product-details";
-                })
-                .orElse("redirect:/"); // если товар не найден, редирект на главную
+    public String productDetails(@PathVariable Long id, ServletWebRequest webRequest, Model model) {
+        Optional<Product> found = productService.getProductById(id);
+        if (found.isEmpty()) {
+            return "redirect:/"; // если товар не найден, редирект на главную
+        }
+        Product product = found.get();
+        long lastModified = product.getUpdatedAt() == null ? -1
+                : product.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (notModified(webRequest, "p" + id + "." + product.getVersion() + "." + product.getStockQuantity(),
+                lastModified)) {
+            return null;
+        }
+        model.addAttribute("product", product);
+        model.addAttribute("cartItemsCount", cartService.getTotalItems());
+        return "product-details";
     }
 
     @GetMapping("/search")
-    public String searchProducts(@RequestParam String keyword, Model model) {
-        model.addAttribute("products", productService.searchProducts(keyword));
+    public String searchProducts(@RequestParam String keyword,
+                                 @RequestParam(required = false) Long after,
+                                 @RequestParam(required = false) Long before,
+                                 @RequestParam(defaultValue = "" + ProductService.DEFAULT_PAGE_SIZE) int size,
+                                 ServletWebRequest webRequest,
+                                 Model model) {
+        if (notModified(webRequest, "c" + productService.getCatalogVersion(),
+                productService.getCatalogLastModified())) {
+            return null;
+        }
+        ProductPage page = productService.searchProductPage(keyword, after, before, size);
+        model.addAttribute("page", page);
+        model.addAttribute("products", page.getItems());
+        model.addAttribute("totalProducts", productService.countProducts());
         model.addAttribute("cartItemsCount", cartService.getTotalItems());
         model.addAttribute("searchKeyword", keyword);
         return "index";
     }
+
+    // Условный GET: при совпадении валидаторов - 304 до запросов каталога и отрисовки.
+    // В страницу входят счетчик корзины и CSRF-токен, поэтому ETag включает и их.
+    // Токен берется из того же хранилища, что и у Spring Security: если сессия
+    // истекла, токена нет, ETag не совпадет и страница придет с новым токеном
+    private boolean notModified(ServletWebRequest webRequest, String version, long lastModified) {
+        webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        String etag = "W/\"" + version + "-" + visitorTag(webRequest.getRequest()) + "\"";
+        return webRequest.checkNotModified(etag, lastModified);
+    }
+
+    private String visitorTag(HttpServletRequest request) {
+        CsrfToken token = csrfTokenRepository.loadToken(request);
+        int csrf = Objects.hashCode(token != null ? token.getToken() : null);
+        return Integer.toHexString(csrf) + "." + cartService.getTotalItems();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.example.onlinestore.csv;
+
+// Запись значений в CSV
+public final class Csv {
+
+    private Csv() {
+    }
+
+    // Значение с разделителем, кавычкой или переводом строки берется в кавычки
+    public static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.onlinestore.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Потоковое чтение CSV (RFC 4180): поля в кавычках могут содержать разделитель,
+// кавычки ("") и переводы строк. В памяти только текущая запись
+public class CsvReader {
+
+    private final Reader in;
+    private final char delimiter;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private long line = 1;
+    private long recordLine;
+    private boolean started;
+
+    public CsvReader(Reader in, char delimiter) {
+        this.in = in;
+        this.delimiter = delimiter;
+    }
+
+    // Следующая запись или null в конце файла; пустые строки пропускаются
+    public List<String> next() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean fieldStarted = false;
+        recordLine = line;
+
+        int c;
+        while ((c = read()) >= 0) {
+            if (quoted) {
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+                fieldStarted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+                fieldStarted = true;
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                line++;
+                if (fields.isEmpty() && field.isEmpty() && !fieldStarted) {
+                    recordLine = line;
+                    continue;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+                fieldStarted = true;
+            }
+        }
+        if (fields.isEmpty() && field.isEmpty() && !fieldStarted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Номер строки файла, с которой началась последняя прочитанная запись
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        limit = in.read(buffer);
+        position = 0;
+        if (limit > 0 && !started) {
+            started = true;
+            // Метка порядка байтов, которую добавляет Excel
+            if (buffer[0] == '\uFEFF') {
+                position = 1;
+                return limit > 1 || fill();
+            }
+        }
+        return limit > 0;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.onlinestore.dto;
+
+import com.example.onlinestore.model.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Строка списка заказов: заполняется одним запросом без загрузки позиций заказа
+public class OrderSummary {
+    private final Long id;
+    private final String customerName;
+    private final String customerEmail;
+    private final BigDecimal totalAmount;
+    private final OrderStatus status;
+    private final LocalDateTime orderDate;
+    private final Long itemCount;
+
+    public OrderSummary(Long id, String customerName, String customerEmail, BigDecimal totalAmount,
+                        OrderStatus status, LocalDateTime orderDate, Long itemCount) {
+        this.id = id;
+        this.customerName = customerName;
+        this.customerEmail = customerEmail;
+        this.totalAmount = totalAmount;
+        this.status = status;
+        this.orderDate = orderDate;
+        this.itemCount = itemCount;
+    }
+
+    // Геттеры
+    public Long getId() { return id; }
+
+    public String getCustomerName() { return customerName; }
+
+    public String getCustomerEmail() { return customerEmail; }
+
+    public BigDecimal getTotalAmount() { return totalAmount; }
+
+    public OrderStatus getStatus() { return status; }
+
+    public LocalDateTime getOrderDate() { return orderDate; }
+
+    public Long getItemCount() { return itemCount; }
+}
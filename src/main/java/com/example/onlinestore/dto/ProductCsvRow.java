@@ -0,0 +1,8 @@
+package com.example.onlinestore.dto;
+
+import java.math.BigDecimal;
+
+// Строка выгрузки/загрузки каталога в CSV; line - номер строки файла при загрузке
+public record ProductCsvRow(long line, Long id, String name, String description,
+                            BigDecimal price, String imageUrl, int stockQuantity) {
+}
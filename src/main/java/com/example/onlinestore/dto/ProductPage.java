@@ -0,0 +1,42 @@
+package com.example.onlinestore.dto;
+
+import com.example.onlinestore.model.Product;
+
+import java.util.List;
+
+// Страница каталога для keyset-пагинации: товары отсортированы по id,
+// курсоры - id последнего (вперед) и первого (назад) товара на странице
+public class ProductPage {
+    private final List<Product> items;
+    private final int size;
+    private final Long nextCursor;
+    private final Long previousCursor;
+    private final boolean cursorLost;
+
+    public ProductPage(List<Product> items, int size, boolean hasNext, boolean hasPrevious) {
+        this(items, size, hasNext, hasPrevious, false);
+    }
+
+    private ProductPage(List<Product> items, int size, boolean hasNext, boolean hasPrevious, boolean cursorLost) {
+        this.items = items;
+        this.size = size;
+        this.nextCursor = hasNext && !items.isEmpty() ? items.get(items.size() - 1).getId() : null;
+        this.previousCursor = hasPrevious && !items.isEmpty() ? items.get(0).getId() : null;
+        this.cursorLost = cursorLost;
+    }
+
+    // Товара-курсора больше нет в результатах (удален или изменился) - позиция потеряна
+    public static ProductPage cursorLost(int size) {
+        return new ProductPage(List.of(), size, false, false, true);
+    }
+
+    public List<Product> getItems() { return items; }
+
+    public int getSize() { return size; }
+
+    public Long getNextCursor() { return nextCursor; }
+
+    public Long getPreviousCursor() { return previousCursor; }
+
+    public boolean isCursorLost() { return cursorLost; }
+}
@@ -0,0 +1,291 @@
+package com.example.onlinestore.image;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.service.ProductService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Изображения товаров на локальном диске. Оригинал хранится под хэшем содержимого,
+// варианты (миниатюра для каталога и изображение для страницы товара) готовит
+// пул фоновых потоков. Внешние URL из админки скачиваются тем же пулом,
+// после чего товар переключается на локальную копию
+@Service
+public class ProductImageService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductImageService.class);
+
+    public static final String URL_PREFIX = "/media/products/";
+    public static final String PLACEHOLDER_URL = "/images/placeholder.svg";
+
+    // Заглушка, которую раньше подставляла админка
+    private static final String LEGACY_PLACEHOLDER = "https://via.placeholder.com/";
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{32}");
+    private static final Pattern VARIANT_NAME = Pattern.compile("([0-9a-f]{32})-(thumb|detail)\\.jpg");
+    private static final long MAX_DOWNLOAD_BYTES = 10L * 1024 * 1024;
+    private static final Duration DOWNLOAD_TIMEOUT = Duration.ofSeconds(15);
+
+    enum Variant {
+        THUMB("thumb", 480, 360),
+        DETAIL("detail", 800, 800);
+
+        final String suffix;
+        final int width;
+        final int height;
+
+        Variant(String suffix, int width, int height) {
+            this.suffix = suffix;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    // Файл для отдачи: immutable - вариант, который больше не изменится
+    public record ImageFile(Path path, String contentType, boolean immutable) {}
+
+    @Autowired
+    private ProductService productService;
+
+    @Value("${app.images.dir:data/images}")
+    private String dir;
+
+    @Value("${app.images.workers:2}")
+    private int workerCount;
+
+    private Path root;
+    private Path originals;
+    private ExecutorService workers;
+    private HttpClient httpClient;
+
+    @PostConstruct
+    public void open() throws IOException {
+        root = Path.of(dir);
+        originals = root.resolve("originals");
+        Files.createDirectories(originals);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, task -> {
+            Thread thread = new Thread(task, "image-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    // Оригиналы, для которых варианты не успели подготовить до остановки
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(originals)) {
+            for (Path original : files) {
+                String hash = original.getFileName().toString();
+                if (HASH.matcher(hash).matches() && !hasVariants(hash)) {
+                    workers.submit(() -> generate(hash));
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // Сохраняет загруженный файл и возвращает URL изображения для страницы товара.
+    // Пока варианты готовятся, по этому URL отдается оригинал
+    public String store(MultipartFile file) throws IOException {
+        // Лимит multipart рассчитан на CSV каталога, для изображений он свой
+        if (file.getSize() > MAX_DOWNLOAD_BYTES) {
+            throw new IOException("Изображение больше " + MAX_DOWNLOAD_BYTES / (1024 * 1024) + " МБ");
+        }
+        Path temp = Files.createTempFile(originals, "upload", ".tmp");
+        try {
+            file.transferTo(temp);
+            return storeOriginal(temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Внешний URL скачивается в фоне; страницы товара не зависят от чужого хоста
+    public void importIfRemote(Product product) {
+        String url = product.getImageUrl();
+        if (!isRemote(url) || url.startsWith(LEGACY_PLACEHOLDER)) {
+            return;
+        }
+        Long productId = product.getId();
+        workers.submit(() -> {
+            try {
+                String local = download(url);
+                productService.replaceImageUrl(productId, url, local);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Image import failed: productId={} url={}: {}", productId, url, e.getMessage());
+            }
+        });
+    }
+
+    // Вариант по имени файла из URL; если он еще не готов - оригинал
+    public ImageFile find(String name) throws IOException {
+        Matcher matcher = VARIANT_NAME.matcher(name);
+        if (!matcher.matches()) {
+            return null;
+        }
+        Path variant = root.resolve(name);
+        if (Files.isRegularFile(variant)) {
+            return new ImageFile(variant, "image/jpeg", true);
+        }
+        Path original = originals.resolve(matcher.group(1));
+        if (Files.isRegularFile(original)) {
+            String format = ImageResizer.detectFormat(original);
+            return new ImageFile(original, "image/" + (format != null ? format : "jpeg"), false);
+        }
+        return null;
+    }
+
+    // URL для страницы товара: без изображения - локальная заглушка
+    public static String imageUrl(String stored) {
+        if (stored == null || stored.isBlank() || stored.startsWith(LEGACY_PLACEHOLDER)) {
+            return PLACEHOLDER_URL;
+        }
+        return stored;
+    }
+
+    // URL для карточки в каталоге: у локальных изображений - миниатюра
+    public static String thumbnailUrl(String stored) {
+        String url = imageUrl(stored);
+        String detail = "-" + Variant.DETAIL.suffix + ".jpg";
+        if (url.startsWith(URL_PREFIX) && url.endsWith(detail)) {
+            return url.substring(0, url.length() - detail.length()) + "-" + Variant.THUMB.suffix + ".jpg";
+        }
+        return url;
+    }
+
+    public static boolean isRemote(String url) {
+        return url != null && (url.startsWith("http://") || url.startsWith("https://"));
+    }
+
+    private String storeOriginal(Path temp) throws IOException {
+        if (ImageResizer.detectFormat(temp) == null) {
+            throw new IllegalArgumentException("Файл не является изображением");
+        }
+        String hash = hash(temp);
+        Path original = originals.resolve(hash);
+        if (!Files.exists(original)) {
+            Files.move(temp, original, StandardCopyOption.ATOMIC_MOVE);
+        }
+        if (!hasVariants(hash)) {
+            workers.submit(() -> generate(hash));
+        }
+        return URL_PREFIX + fileName(hash, Variant.DETAIL);
+    }
+
+    private String download(String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(DOWNLOAD_TIMEOUT).GET().build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        Path temp = Files.createTempFile(originals, "download", ".tmp");
+        try (InputStream in = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IOException("HTTP " + response.statusCode());
+            }
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[16 * 1024];
+                long total = 0;
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    total += read;
+                    if (total > MAX_DOWNLOAD_BYTES) {
+                        throw new IOException("Изображение больше " + MAX_DOWNLOAD_BYTES + " байт");
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            return storeOriginal(temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void generate(String hash) {
+        try {
+            BufferedImage source = ImageResizer.read(originals.resolve(hash));
+            for (Variant variant : Variant.values()) {
+                Path target = root.resolve(fileName(hash, variant));
+                if (Files.exists(target)) {
+                    continue;
+                }
+                // Запись во временный файл: обработчик не должен увидеть недописанный вариант
+                Path temp = Files.createTempFile(root, hash, ".tmp");
+                try {
+                    ImageResizer.writeJpeg(ImageResizer.fit(source, variant.width, variant.height), temp);
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Image processing failed: hash={}", hash, e);
+        }
+    }
+
+    private boolean hasVariants(String hash) {
+        for (Variant variant : Variant.values()) {
+            if (!Files.exists(root.resolve(fileName(hash, variant)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String fileName(String hash, Variant variant) {
+        return hash + "-" + variant.suffix + ".jpg";
+    }
+
+    private static String hash(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.onlinestore.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Прореживание DEBUG/TRACE многословных логгеров (SQL Hibernate и т.п.):
+// в приложение проходит одно событие из sampleRate. INFO и выше не трогаются
+public class SamplingTurboFilter extends TurboFilter {
+
+    private final AtomicLong counter = new AtomicLong();
+    private volatile String[] categories = new String[0];
+    private volatile int sampleRate = 100;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == null || level.isGreaterOrEqual(Level.INFO) || sampleRate <= 1) {
+            return FilterReply.NEUTRAL;
+        }
+        // Выключенный уровень отсечет сам логгер; счетчик не трогаем
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        if (!isSampled(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        return counter.getAndIncrement() % sampleRate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private boolean isSampled(String name) {
+        for (String category : categories) {
+            if (name.startsWith(category)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    // Префиксы имен логгеров через запятую
+    public void setCategories(String categories) {
+        this.categories = categories == null || categories.isBlank()
+                ? new String[0]
+                : categories.trim().split("\\s*,\\s*");
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.onlinestore.metrics;
+
+import com.example.onlinestore.cache.LoadingCache;
+import com.example.onlinestore.service.ProductService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Попадания, промахи и ожидания чужой загрузки в кэшах каталога: значения читаются из LoadingCache при сборе метрик
+@Component
+public class CatalogCacheMetrics implements MeterBinder {
+
+    public static final String REQUESTS_COUNTER = "app.cache.requests";
+
+    @Autowired
+    private ProductService productService;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        productService.getCaches().forEach((name, cache) -> {
+            FunctionCounter.builder(REQUESTS_COUNTER, cache, LoadingCache::hitCount)
+                    .tag("cache", name).tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder(REQUESTS_COUNTER, cache, LoadingCache::missCount)
+                    .tag("cache", name).tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder(REQUESTS_COUNTER, cache, LoadingCache::waitCount)
+                    .tag("cache", name).tag("result", "wait")
+                    .register(registry);
+            FunctionCounter.builder("app.cache.evictions", cache, LoadingCache::evictionCount)
+                    .tag("cache", name)
+                    .register(registry);
+            Gauge.builder("app.cache.size", cache, LoadingCache::size)
+                    .tag("cache", name)
+                    .register(registry);
+        });
+    }
+}
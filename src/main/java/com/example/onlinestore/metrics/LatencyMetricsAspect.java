@@ -0,0 +1,55 @@
+package com.example.onlinestore.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Время публичных методов сервисов и JdbcTemplate-репозиториев.
+// Репозитории Spring Data замеряет сам Spring Boot (spring.data.repository.invocations)
+@Aspect
+@Component
+public class LatencyMetricsAspect {
+
+    public static final String SERVICE_TIMER = "app.service.calls";
+    public static final String REPOSITORY_TIMER = "app.repository.calls";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Таймер на метод создается один раз, а не ищется в реестре на каждом вызове
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    @Around("within(com.example.onlinestore.service..*) && execution(public * *(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(SERVICE_TIMER, joinPoint);
+    }
+
+    @Around("within(com.example.onlinestore.repository..*) && execution(public * *(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(REPOSITORY_TIMER, joinPoint);
+    }
+
+    private Object time(String name, ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Timer timer = timers.computeIfAbsent(method, m -> Timer.builder(name)
+                .tag("class", m.getDeclaringClass().getSimpleName())
+                .tag("method", m.getName())
+                .register(meterRegistry));
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.onlinestore.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+// Сводка для страницы /admin/metrics: задержки (p50/p99) по маршрутам и зависимостям
+// и счетчики. Перцентили считает Micrometer, они включены в application.properties
+@Component
+public class LatencyReport {
+
+    // Имя таймера -> группа на странице
+    private static final Map<String, String> TIMER_GROUPS = new LinkedHashMap<>();
+    static {
+        TIMER_GROUPS.put("http.server.requests", "Маршруты");
+        TIMER_GROUPS.put("http.client.requests", "Внешние вызовы");
+        TIMER_GROUPS.put(LatencyMetricsAspect.SERVICE_TIMER, "Сервисы");
+        TIMER_GROUPS.put(LatencyMetricsAspect.REPOSITORY_TIMER, "Репозитории");
+        TIMER_GROUPS.put("spring.data.repository.invocations", "Репозитории");
+    }
+
+    private static final List<String> COUNTERS = List.of(
+            CatalogCacheMetrics.REQUESTS_COUNTER,
+            "app.cache.evictions",
+            StatementCountingCustomizer.STATEMENT_COUNTER);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public Map<String, List<LatencyStats>> latencies() {
+        Map<String, List<LatencyStats>> groups = new LinkedHashMap<>();
+        for (String group : TIMER_GROUPS.values()) {
+            groups.putIfAbsent(group, new ArrayList<>());
+        }
+        for (Meter meter : meterRegistry.getMeters()) {
+            String group = TIMER_GROUPS.get(meter.getId().getName());
+            if (group != null && meter instanceof Timer timer && timer.count() > 0) {
+                groups.get(group).add(stats(timer));
+            }
+        }
+        for (List<LatencyStats> rows : groups.values()) {
+            rows.sort(Comparator.comparingDouble(LatencyStats::p99Ms).reversed());
+        }
+        return groups;
+    }
+
+    public List<CounterStats> counters() {
+        List<CounterStats> result = new ArrayList<>();
+        for (Meter meter : meterRegistry.getMeters()) {
+            if (COUNTERS.contains(meter.getId().getName())) {
+                double value = meter.measure().iterator().next().getValue();
+                result.add(new CounterStats(meter.getId().getName(), label(meter), (long) value));
+            }
+        }
+        result.sort(Comparator.comparing(CounterStats::name).thenComparing(CounterStats::label));
+        return result;
+    }
+
+    private static LatencyStats stats(Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        double p50 = Double.NaN;
+        double p99 = Double.NaN;
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            if (value.percentile() == 0.5) {
+                p50 = value.value(TimeUnit.MILLISECONDS);
+            } else if (value.percentile() == 0.99) {
+                p99 = value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return new LatencyStats(label(timer), snapshot.count(),
+                snapshot.mean(TimeUnit.MILLISECONDS), p50, p99, snapshot.max(TimeUnit.MILLISECONDS));
+    }
+
+    // Значения тегов через пробел, например "GET 200 /product/{id}"
+    private static String label(Meter meter) {
+        StringJoiner label = new StringJoiner(" ");
+        for (Tag tag : meter.getId().getTagsAsIterable()) {
+            if (!tag.getKey().equals("outcome") && !tag.getValue().equalsIgnoreCase("none")) {
+                label.add(tag.getValue());
+            }
+        }
+        return label.toString();
+    }
+
+    public record LatencyStats(String label, long count, double meanMs, double p50Ms, double p99Ms, double maxMs) {}
+
+    public record CounterStats(String name, String label, long value) {}
+}
@@ -0,0 +1,57 @@
+package com.example.onlinestore.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Счетчик SQL-операторов Hibernate по типу (app.db.statements) - число обращений к БД.
+// Пачка вставок считается одним оператором; запросы JdbcTemplate видны по app.repository.calls
+@Component
+public class StatementCountingCustomizer implements HibernatePropertiesCustomizer {
+
+    public static final String STATEMENT_COUNTER = "app.db.statements";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        Counter select = counter("select");
+        Counter insert = counter("insert");
+        Counter update = counter("update");
+        Counter delete = counter("delete");
+        Counter other = counter("other");
+
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql -> {
+            switch (firstLetter(sql)) {
+                case 's', 'w' -> select.increment();
+                case 'i' -> insert.increment();
+                case 'u' -> update.increment();
+                case 'd' -> delete.increment();
+                default -> other.increment();
+            }
+            return sql;
+        });
+    }
+
+    private Counter counter(String type) {
+        return Counter.builder(STATEMENT_COUNTER).tag("type", type).register(meterRegistry);
+    }
+
+    // Первая буква оператора: select/with, insert, update, delete
+    private static char firstLetter(String sql) {
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (!Character.isWhitespace(c) && c != '(') {
+                return Character.toLowerCase(c);
+            }
+        }
+        return ' ';
+    }
+}
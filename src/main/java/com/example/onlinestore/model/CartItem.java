@@ -2,13 +2,16 @@ package com.example.onlinestore.model;
 
 import java.math.BigDecimal;
 
+// Позиция корзины для отображения: товар из каталога и цена на момент добавления
 public class CartItem {
     private Product product;
     private Integer quantity;
+    private BigDecimal unitPrice;
 
-    public CartItem(Product product, Integer quantity) {
+    public CartItem(Product product, Integer quantity, BigDecimal unitPrice) {
         this.product = product;
         this.quantity = quantity;
+        this.unitPrice = unitPrice;
     }
 
     // Геттеры и сеттеры
@@ -18,8 +21,11 @@ public class CartItem {
     public Integer getQuantity() { return quantity; }
     public void setQuantity(Integer quantity) { this.quantity = quantity; }
 
+    public BigDecimal getUnitPrice() { return unitPrice; }
+    public void setUnitPrice(BigDecimal unitPrice) { this.unitPrice = unitPrice; }
+
     public BigDecimal getTotalPrice() {
-        return product.getPrice().multiply(BigDecimal.valueOf(quantity));
+        return unitPrice.multiply(BigDecimal.valueOf(quantity));
     }
 
     @Override
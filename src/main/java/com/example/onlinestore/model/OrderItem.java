@@ -1,5 +1,6 @@
 package com.example.onlinestore.model;
 
+import com.example.onlinestore.config.IdSequenceInitializer;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 
@@ -7,7 +8,8 @@ import java.math.BigDecimal;
 @Table(name = "order_items")
 public class OrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = IdSequenceInitializer.ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -33,6 +35,12 @@ public class OrderItem {
         this.price = product.getPrice();
     }
 
+    public OrderItem(Product product, Integer quantity, BigDecimal price) {
+        this.product = product;
+        this.quantity = quantity;
+        this.price = price;
+    }
+
     public BigDecimal getTotalPrice() {
         return price.multiply(BigDecimal.valueOf(quantity));
     }
@@ -0,0 +1,43 @@
+package com.example.onlinestore.model;
+
+import jakarta.persistence.*;
+
+// Слово или начало слова из данных заказа для поиска в админке (имя, email, адрес,
+// телефон, номер). Префиксы хранятся отдельными строками, поэтому поиск - точное
+// совпадение term, и индекс (term, order_id) сразу отдает заказы по убыванию id
+@Entity
+@Table(name = "order_search_prefixes", indexes = {
+        @Index(name = "idx_order_search_prefix", columnList = "term, order_id", unique = true),
+        @Index(name = "idx_order_search_prefix_order", columnList = "order_id")
+})
+public class OrderSearchTerm {
+    public static final int MAX_TERM_LENGTH = 64;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(nullable = false, length = MAX_TERM_LENGTH)
+    private String term;
+
+    // Конструкторы
+    public OrderSearchTerm() {}
+
+    public OrderSearchTerm(Long orderId, String term) {
+        this.orderId = orderId;
+        this.term = term;
+    }
+
+    // Геттеры и сеттеры
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+
+    public String getTerm() { return term; }
+    public void setTerm(String term) { this.term = term; }
+}
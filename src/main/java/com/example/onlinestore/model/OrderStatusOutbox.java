@@ -0,0 +1,45 @@
+package com.example.onlinestore.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Запись о смене статуса заказа, сделанная в транзакции платежа.
+// Применяется к таблице orders фоновой задачей (OrderStatusRelay)
+@Entity
+@Table(name = "order_status_outbox")
+public class OrderStatusOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderStatus status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // Конструкторы
+    public OrderStatusOutbox() {}
+
+    public OrderStatusOutbox(Long orderId, OrderStatus status) {
+        this.orderId = orderId;
+        this.status = status;
+    }
+
+    // Геттеры и сеттеры
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+
+    public OrderStatus getStatus() { return status; }
+    public void setStatus(OrderStatus status) { this.status = status; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
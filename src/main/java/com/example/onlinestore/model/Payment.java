@@ -1,5 +1,6 @@
 package com.example.onlinestore.model;
 
+import com.example.onlinestore.config.IdSequenceInitializer;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -8,7 +9,8 @@ import java.time.LocalDateTime;
 @Table(name = "payments")
 public class Payment {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payments_seq")
+    @SequenceGenerator(name = "payments_seq", sequenceName = "payments_seq", allocationSize = IdSequenceInitializer.ALLOCATION_SIZE)
     private Long id;
 
     @OneToOne(fetch = FetchType.LAZY)
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "products")
@@ -33,6 +34,14 @@ public class Product {
     @Column(name = "stock_quantity", nullable = false)
     private Integer stockQuantity = 0;
 
+    // Растет при каждом сохранении товара (ProductService.saveProduct)
+    @Column(nullable = false)
+    private long version;
+
+    // Время последнего изменения, включая остаток (Last-Modified страницы товара)
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
     // Конструкторы
     public Product() {}
 
@@ -62,4 +71,19 @@ public class Product {
 
     public Integer getStockQuantity() { return stockQuantity; }
     public void setStockQuantity(Integer stockQuantity) { this.stockQuantity = stockQuantity; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    // Копия для выдачи из кэша каталога: закэшированный экземпляр общий для всех потоков
+    public Product copy() {
+        Product copy = new Product(name, description, price, imageUrl, stockQuantity);
+        copy.id = id;
+        copy.version = version;
+        copy.updatedAt = updatedAt;
+        return copy;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.example.onlinestore.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Корзина в БД (JdbcCartStore). data - двоичный формат CartCodec
+@Entity
+@Table(name = "carts", indexes = {
+        @Index(name = "idx_carts_updated_at", columnList = "updated_at")
+})
+public class StoredCart {
+    @Id
+    @Column(name = "cart_id", length = 36)
+    private String cartId;
+
+    @Column(nullable = false, length = 16384)
+    private byte[] data;
+
+    // Номер версии для условной записи (меняется при каждом изменении корзины)
+    @Column(nullable = false)
+    private long version;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Конструкторы
+    public StoredCart() {}
+
+    // Геттеры и сеттеры
+    public String getCartId() { return cartId; }
+    public void setCartId(String cartId) { this.cartId = cartId; }
+
+    public byte[] getData() { return data; }
+    public void setData(byte[] data) { this.data = data; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
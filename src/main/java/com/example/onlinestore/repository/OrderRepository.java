@@ -1,18 +1,49 @@
 package com.example.onlinestore.repository;
 
+import com.example.onlinestore.dto.OrderSummary;
 import com.example.onlinestore.model.Order;
 import com.example.onlinestore.model.OrderStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+    String SUMMARY_SELECT = "SELECT new com.example.onlinestore.dto.OrderSummary(" +
+            "o.id, o.customerName, o.customerEmail, o.totalAmount, o.status, o.orderDate, " +
+            "(SELECT CAST(COALESCE(SUM(i.quantity), 0) AS Long) FROM OrderItem i WHERE i.order = o)) " +
+            "FROM Order o ";
+
+    // Списки заказов для админки и истории - проекция, одним запросом
+    @Query(SUMMARY_SELECT + "WHERE o.id < :beforeId ORDER BY o.id DESC")
+    List<OrderSummary> findSummariesBefore(Long beforeId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE o.id IN :ids ORDER BY o.id DESC")
+    List<OrderSummary> findSummariesByIdIn(Collection<Long> ids);
+
+    @Query(SUMMARY_SELECT + "WHERE o.customerEmail = :email ORDER BY o.orderDate DESC")
+    List<OrderSummary> findSummariesByCustomerEmail(String email);
+
+    @Query(SUMMARY_SELECT + "ORDER BY o.orderDate DESC")
+    List<OrderSummary> findRecentSummaries(Pageable pageable);
+
+    // Заказ с позициями и товарами для страницы деталей
+    @EntityGraph(attributePaths = {"items", "items.product"})
+    Optional<Order> findWithItemsById(Long id);
+
     // Найти все заказы, отсортированные по дате (новые сначала)
     List<Order> findAllByOrderByOrderDateDesc();
 
@@ -26,9 +57,25 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findTop5ByOrderByOrderDateDesc();
 
     // Найти заказы за определенный период
-    @Query("SELECT o FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate ORDER BY o.orderDate DESC")
+    @Query("SELECT o FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate ORDER BY o.orderDate DESC, o.id DESC")
     List<Order> findByOrderDateBetween(LocalDateTime startDate, LocalDateTime endDate);
 
+    // Страница заказов за период после курсора (дата и id последнего заказа предыдущей страницы)
+    @Query("SELECT o FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate " +
+            "AND (o.orderDate < :cursorDate OR (o.orderDate = :cursorDate AND o.id < :cursorId)) " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findByOrderDateBetweenBefore(LocalDateTime startDate, LocalDateTime endDate,
+                                             LocalDateTime cursorDate, Long cursorId, Pageable pageable);
+
+    // Потоковое чтение заказов за период (серверный курсор, для выгрузок).
+    // Поток должен быть закрыт внутри транзакции
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate ORDER BY o.orderDate DESC, o.id DESC")
+    Stream<Order> streamByOrderDateBetween(LocalDateTime startDate, LocalDateTime endDate);
+
     // Получить общее количество заказов по статусу
     Long countByStatus(OrderStatus status);
 
@@ -38,4 +85,21 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     // Получить общую выручку по статусу
     @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.status = :status")
     BigDecimal getTotalAmountByStatus(OrderStatus status);
+
+    // Количество и сумма заказов по статусам: [status, count, sum]
+    @Query("SELECT o.status, COUNT(o), SUM(o.totalAmount) FROM Order o GROUP BY o.status")
+    List<Object[]> sumByStatus();
+
+    // Данные заказов для пересчета статистики: [id, status, totalAmount, orderDate]
+    @Query("SELECT o.id, o.status, o.totalAmount, o.orderDate FROM Order o WHERE o.id IN :ids")
+    List<Object[]> findStatsRowsByIdIn(Collection<Long> ids);
+
+    // Сумма заказов по месяцам и статусам: [year, month, status, sum]
+    @Query("SELECT EXTRACT(YEAR FROM o.orderDate), EXTRACT(MONTH FROM o.orderDate), o.status, SUM(o.totalAmount) " +
+            "FROM Order o GROUP BY EXTRACT(YEAR FROM o.orderDate), EXTRACT(MONTH FROM o.orderDate), o.status")
+    List<Object[]> sumByMonthAndStatus();
+
+    // Сумма заказов с указанными статусами, начиная с даты
+    @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.orderDate >= :from AND o.status IN :statuses")
+    BigDecimal getTotalAmountSince(LocalDateTime from, Collection<OrderStatus> statuses);
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.example.onlinestore.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public class OrderSearchRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void replaceTerms(Long orderId, Collection<String> terms) {
+        jdbcTemplate.update("DELETE FROM order_search_prefixes WHERE order_id = ?", orderId);
+        jdbcTemplate.batchUpdate("INSERT INTO order_search_prefixes (order_id, term) VALUES (?, ?)",
+                terms, terms.size(), (ps, term) -> {
+                    ps.setLong(1, orderId);
+                    ps.setString(2, term);
+                });
+    }
+
+    public void deleteTerms(Long orderId) {
+        jdbcTemplate.update("DELETE FROM order_search_prefixes WHERE order_id = ?", orderId);
+    }
+
+    // Сколько заказов содержат term, но не больше cap: оценка селективности без полного подсчета
+    public int countOrders(String term, int cap) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT 1 FROM order_search_prefixes WHERE term = ? LIMIT ?) t",
+                Integer.class, term, cap);
+        return count == null ? 0 : count;
+    }
+
+    // id заказов, у которых есть все terms и слова, начинающиеся с каждого из prefixes, по убыванию id.
+    // Первый term должен быть самым селективным: индекс (term, order_id) по нему читается уже
+    // в порядке order_id DESC, остальные условия - точечные проверки для каждого кандидата
+    public List<Long> findOrderIds(List<String> terms, List<String> prefixes, Long beforeId, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT t0.order_id FROM order_search_prefixes t0 WHERE t0.term = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(terms.get(0));
+        if (beforeId != null) {
+            sql.append(" AND t0.order_id < ?");
+            args.add(beforeId);
+        }
+        for (int i = 1; i < terms.size(); i++) {
+            sql.append(" AND EXISTS (SELECT 1 FROM order_search_prefixes t").append(i)
+                    .append(" WHERE t").append(i).append(".term = ? AND t")
+                    .append(i).append(".order_id = t0.order_id)");
+            args.add(terms.get(i));
+        }
+        // Префиксы длиннее хранимых: дочитываем слова самого заказа
+        for (String prefix : prefixes) {
+            sql.append(" AND EXISTS (SELECT 1 FROM order_search_prefixes l")
+                    .append(" WHERE l.order_id = t0.order_id AND l.term LIKE ?)");
+            args.add(likePrefix(prefix));
+        }
+        sql.append(" ORDER BY t0.order_id DESC LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.queryForList(sql.toString(), Long.class, args.toArray());
+    }
+
+    // Заказы без поисковых слов (созданные до появления индекса)
+    public List<Long> findUnindexedOrderIds(Long afterId, int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT o.id FROM orders o WHERE o.id > ? AND NOT EXISTS " +
+                        "(SELECT 1 FROM order_search_prefixes t WHERE t.order_id = o.id) ORDER BY o.id LIMIT ?",
+                Long.class, afterId, limit);
+    }
+
+    private static String likePrefix(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
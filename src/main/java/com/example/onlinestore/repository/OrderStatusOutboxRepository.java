@@ -0,0 +1,90 @@
+package com.example.onlinestore.repository;
+
+import com.example.onlinestore.model.OrderStatus;
+import com.example.onlinestore.model.OrderStatusOutbox;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+@Repository
+public class OrderStatusOutboxRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Вызывается внутри транзакции платежа - запись фиксируется вместе с ней
+    public void append(Long orderId, OrderStatus status) {
+        jdbcTemplate.update("INSERT INTO order_status_outbox (order_id, status, created_at) VALUES (?, ?, ?)",
+                orderId, status.name(), Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    // Самые старые записи в порядке поступления
+    public List<OrderStatusOutbox> findBatch(int limit) {
+        return jdbcTemplate.query("SELECT id, order_id, status FROM order_status_outbox ORDER BY id LIMIT ?",
+                (rs, rowNum) -> {
+                    OrderStatusOutbox entry = new OrderStatusOutbox(rs.getLong("order_id"),
+                            OrderStatus.valueOf(rs.getString("status")));
+                    entry.setId(rs.getLong("id"));
+                    return entry;
+                }, limit);
+    }
+
+    public void delete(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM order_status_outbox WHERE id = ?", ids, ids.size(),
+                (ps, id) -> ps.setLong(1, id));
+    }
+
+    // Текущий статус, сумма и дата заказов - без загрузки сущностей и позиций
+    public List<OrderState> findOrderStates(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String placeholders = String.join(",", Collections.nCopies(orderIds.size(), "?"));
+        return jdbcTemplate.query(
+                "SELECT id, status, total_amount, order_date FROM orders WHERE id IN (" + placeholders + ")",
+                (rs, rowNum) -> new OrderState(rs.getLong("id"), OrderStatus.valueOf(rs.getString("status")),
+                        rs.getBigDecimal("total_amount"), rs.getTimestamp("order_date").toLocalDateTime()),
+                orderIds.toArray());
+    }
+
+    // Обновление одной колонки status одним batch-запросом.
+    // Строка меняется, только если статус все еще прежний (его мог сменить администратор);
+    // возвращает число обновленных строк для каждой смены
+    public int[] updateOrderStatuses(List<StatusChange> changes) {
+        if (changes.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate("UPDATE orders SET status = ? WHERE id = ? AND status = ?",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        StatusChange change = changes.get(i);
+                        ps.setString(1, change.to().name());
+                        ps.setLong(2, change.orderId());
+                        ps.setString(3, change.from().name());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return changes.size();
+                    }
+                });
+    }
+
+    public record OrderState(Long id, OrderStatus status, BigDecimal totalAmount, LocalDateTime orderDate) {}
+
+    public record StatusChange(Long orderId, OrderStatus from, OrderStatus to) {}
+}
@@ -4,6 +4,8 @@ import com.example.onlinestore.model.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +13,5 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Optional<Payment> findByOrderId(Long orderId);
     Optional<Payment> findByPaymentId(String paymentId);
     boolean existsByOrderId(Long orderId);
+    List<Payment> findByPaymentIdIn(Collection<String> paymentIds);
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.example.onlinestore.repository;
+
+import com.example.onlinestore.dto.ProductCsvRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Массовая загрузка и выгрузка товаров в обход JPA: batch-запросы и чтение курсором
+@Repository
+public class ProductBulkRepository {
+
+    private static final String UPDATE_SQL =
+            "UPDATE products SET name = ?, description = ?, price = ?, image_url = ?, stock_quantity = ?, " +
+                    "version = version + 1, updated_at = ? WHERE id = ?";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO products (name, description, price, image_url, stock_quantity, version, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, 1, ?)";
+
+    private static final String EXPORT_SQL =
+            "SELECT id, name, description, price, image_url, stock_quantity FROM products ORDER BY id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.products.export.fetch-size:500}")
+    private int fetchSize;
+
+    // Для каждой строки возвращает число обновленных строк: 0 - товара с таким id нет
+    public int[] update(List<ProductCsvRow> rows, LocalDateTime now) {
+        if (rows.isEmpty()) {
+            return new int[0];
+        }
+        Timestamp updatedAt = Timestamp.valueOf(now);
+        return jdbcTemplate.batchUpdate(UPDATE_SQL, rows, rows.size(), (ps, row) -> {
+            setFields(ps, row, updatedAt);
+            ps.setLong(7, row.id());
+        })[0];
+    }
+
+    // Возвращает id новых товаров в порядке строк
+    public List<Long> insert(List<ProductCsvRow> rows, LocalDateTime now) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        Timestamp updatedAt = Timestamp.valueOf(now);
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setFields(ps, rows.get(i), updatedAt);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                }, keys);
+        List<Long> ids = new ArrayList<>(rows.size());
+        for (Map<String, Object> key : keys.getKeyList()) {
+            ids.add(((Number) key.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+
+    // Построчный обход всех товаров. С useCursorFetch драйвер MySQL читает
+    // результат порциями по fetchSize, а не загружает его целиком
+    public long forEach(Consumer<ProductCsvRow> action) {
+        long[] count = {0};
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(EXPORT_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, rs -> {
+            action.accept(new ProductCsvRow(0, rs.getLong("id"), rs.getString("name"),
+                    rs.getString("description"), rs.getBigDecimal("price"),
+                    rs.getString("image_url"), rs.getInt("stock_quantity")));
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    private static void setFields(PreparedStatement ps, ProductCsvRow row, Timestamp updatedAt)
+            throws SQLException {
+        ps.setString(1, row.name());
+        ps.setString(2, row.description());
+        ps.setBigDecimal(3, row.price());
+        ps.setString(4, row.imageUrl());
+        ps.setInt(5, row.stockQuantity());
+        ps.setTimestamp(6, updatedAt);
+    }
+}
@@ -1,11 +1,49 @@
 package com.example.onlinestore.repository;
 
 import com.example.onlinestore.model.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByNameContainingIgnoreCase(String name);
+
+    // Keyset-пагинация по первичному ключу
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<Product> findByIdLessThanOrderByIdDesc(Long id, Pageable pageable);
+
+    @Query("SELECT p.id FROM Product p WHERE p.id > :id ORDER BY p.id")
+    List<Long> findIdsByIdGreaterThan(Long id, Pageable pageable);
+
+    List<Product> findByNameContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc(String name, Long id, Pageable pageable);
+
+    List<Product> findByNameContainingIgnoreCaseAndIdLessThanOrderByIdDesc(String name, Long id, Pageable pageable);
+
+    // Текущие цены товаров: [id, price]
+    @Query("SELECT p.id, p.price FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findPricesByIdIn(Collection<Long> ids);
+
+    // Состояние каталога для ETag главной и поиска: [число товаров, max id, max updated_at]
+    @Query("SELECT COUNT(p), MAX(p.id), MAX(p.updatedAt) FROM Product p")
+    List<Object[]> findCatalogState();
+
+    @Query("SELECT p.version FROM Product p WHERE p.id = :id")
+    Optional<Long> findVersionById(Long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Product p SET p.imageUrl = :newUrl, p.version = p.version + 1, p.updatedAt = :now " +
+            "WHERE p.id = :id AND p.imageUrl = :expectedUrl")
+    int replaceImageUrl(Long id, String expectedUrl, String newUrl, LocalDateTime now);
 }
\ No newline at end of file
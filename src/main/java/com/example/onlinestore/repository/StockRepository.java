@@ -0,0 +1,76 @@
+package com.example.onlinestore.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// Изменение остатка обновляет и updated_at: от него считается Last-Modified страницы товара
+@Repository
+public class StockRepository {
+
+    private static final String RESERVE_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = ? " +
+                    "WHERE id = ? AND stock_quantity >= ? AND ? > 0";
+
+    private static final String DECREMENT_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = ? WHERE id = ?";
+
+    private static final String RELEASE_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity + ?, updated_at = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Условное списание остатков одним batch-запросом.
+    // Для каждой позиции возвращает число обновленных строк: 0 - товара не хватило
+    // или количество не положительное (отрицательное списание увеличило бы остаток)
+    public int[] reserve(List<Map.Entry<Long, Integer>> lines) {
+        if (lines.isEmpty()) {
+            return new int[0];
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.batchUpdate(RESERVE_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setObject(2, now);
+            ps.setLong(3, line.getKey());
+            ps.setInt(4, line.getValue());
+            ps.setInt(5, line.getValue());
+        })[0];
+    }
+
+    // Возврат товаров на склад (например, при отмене заказа)
+    public void release(List<Map.Entry<Long, Integer>> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(RELEASE_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setObject(2, now);
+            ps.setLong(3, line.getKey());
+        });
+    }
+
+    // Безусловное списание накопленных изменений (отрицательное значение - возврат)
+    public void decrement(List<Map.Entry<Long, Integer>> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(DECREMENT_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setObject(2, now);
+            ps.setLong(3, line.getKey());
+        });
+    }
+
+    public Integer findStockQuantity(Long productId) {
+        List<Integer> result = jdbcTemplate.queryForList(
+                "SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+        return result.isEmpty() ? 0 : result.get(0);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.onlinestore.search;
+
+import com.example.onlinestore.model.Order;
+import com.example.onlinestore.model.OrderSearchTerm;
+import com.example.onlinestore.repository.OrderRepository;
+import com.example.onlinestore.repository.OrderSearchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Поисковый индекс заказов в БД (таблица order_search_prefixes):
+// префиксный поиск по номеру, имени, email, адресу и телефону клиента.
+// Каждое слово хранится вместе со всеми своими началами длиной до MAX_PREFIX_LENGTH,
+// поэтому префикс запроса ищется точным совпадением, а не LIKE по большой части таблицы
+@Component
+public class OrderSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderSearchIndex.class);
+
+    private static final int MAX_QUERY_TOKENS = 4;
+    static final int MAX_PREFIX_LENGTH = 16;
+    // Дальше этого числа заказов селективность слова не уточняется
+    private static final int SELECTIVITY_CAP = 10_000;
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    @Autowired
+    private OrderSearchRepository orderSearchRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    // Вызывается в транзакции сохранения заказа
+    public void index(Order order) {
+        orderSearchRepository.replaceTerms(order.getId(), prefixes(terms(order)));
+    }
+
+    public void remove(Long orderId) {
+        orderSearchRepository.deleteTerms(orderId);
+    }
+
+    // id заказов по убыванию; beforeId - курсор (id последнего заказа предыдущей страницы)
+    public List<Long> search(String query, Long beforeId, int limit) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(Tokenizer.tokenize(query)));
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        // Самые длинные слова самые селективные
+        tokens.sort(Comparator.comparingInt(String::length).reversed());
+        if (tokens.size() > MAX_QUERY_TOKENS) {
+            tokens = tokens.subList(0, MAX_QUERY_TOKENS);
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        List<String> longPrefixes = new ArrayList<>();
+        for (String token : tokens) {
+            String prefix = truncate(token);
+            if (prefix.length() > MAX_PREFIX_LENGTH) {
+                // Такие начала слов не хранятся: ищем по первым символам и дочитываем LIKE
+                keys.add(prefix.substring(0, MAX_PREFIX_LENGTH));
+                longPrefixes.add(prefix);
+            } else {
+                keys.add(prefix);
+            }
+        }
+        List<String> terms = new ArrayList<>(keys);
+        if (terms.size() > 1) {
+            // Сканирование идет по самому редкому слову, остальные проверяются точечно
+            Map<String, Integer> counts = new HashMap<>();
+            for (String term : terms) {
+                counts.put(term, orderSearchRepository.countOrders(term, SELECTIVITY_CAP));
+            }
+            terms.sort(Comparator.comparing(counts::get));
+        }
+        return orderSearchRepository.findOrderIds(terms, longPrefixes, beforeId, limit);
+    }
+
+    // Индексация заказов, созданных до появления поискового индекса
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long lastId = 0;
+        int total = 0;
+        while (true) {
+            List<Long> ids = orderSearchRepository.findUnindexedOrderIds(lastId, BACKFILL_BATCH_SIZE);
+            if (ids.isEmpty()) {
+                break;
+            }
+            for (Order order : orderRepository.findAllById(ids)) {
+                index(order);
+            }
+            lastId = ids.get(ids.size() - 1);
+            total += ids.size();
+        }
+        if (total > 0) {
+            log.info("Order search index backfilled: {} orders", total);
+        }
+    }
+
+    static List<String> terms(Order order) {
+        Set<String> terms = new LinkedHashSet<>();
+        terms.add(String.valueOf(order.getId()));
+        terms.addAll(Tokenizer.tokenize(order.getCustomerName()));
+        terms.addAll(Tokenizer.tokenize(order.getCustomerAddress()));
+        if (order.getCustomerEmail() != null) {
+            // Email целиком - для поиска по началу адреса, например "ivan.petrov@"
+            terms.add(Tokenizer.normalize(order.getCustomerEmail()));
+            terms.addAll(Tokenizer.tokenize(order.getCustomerEmail()));
+        }
+        if (order.getCustomerPhone() != null) {
+            String digits = order.getCustomerPhone().replaceAll("\\D", "");
+            if (!digits.isEmpty()) {
+                terms.add(digits);
+            }
+            terms.addAll(Tokenizer.tokenize(order.getCustomerPhone()));
+        }
+
+        List<String> result = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            String truncated = truncate(term);
+            if (!result.contains(truncated)) {
+                result.add(truncated);
+            }
+        }
+        return result;
+    }
+
+    // Слова и их начала для хранения: "ivan" -> "i", "iv", "iva", "ivan"
+    static Set<String> prefixes(List<String> terms) {
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (String term : terms) {
+            int max = Math.min(term.length(), MAX_PREFIX_LENGTH);
+            for (int length = 1; length <= max; length++) {
+                prefixes.add(term.substring(0, length));
+            }
+            prefixes.add(term);
+        }
+        return prefixes;
+    }
+
+    private static String truncate(String term) {
+        return term.length() > OrderSearchTerm.MAX_TERM_LENGTH
+                ? term.substring(0, OrderSearchTerm.MAX_TERM_LENGTH)
+                : term;
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.onlinestore.search;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Инвертированный индекс товаров в памяти по названию и описанию.
+// Частичные совпадения ищутся через триграммы словаря.
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float PARTIAL_MATCH_FACTOR = 0.5f;
+    private static final int NGRAM = 3;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    // Порядок выдачи: по убыванию релевантности, при равной - по id
+    private static final Comparator<Map.Entry<Long, Float>> RANKING =
+            Map.Entry.<Long, Float>comparingByValue(Comparator.reverseOrder())
+                    .thenComparing(Map.Entry.<Long, Float>comparingByKey());
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    // слово -> (id товара -> вес)
+    private final Map<String, Map<Long, Float>> postings = new HashMap<>();
+    // триграмма -> слова словаря, которые ее содержат
+    private final Map<String, Set<String>> ngrams = new HashMap<>();
+    // начало слова короче триграммы -> слова словаря с этим началом
+    private final Map<String, Set<String>> prefixes = new HashMap<>();
+    // id товара -> его слова (для удаления из индекса)
+    private final Map<Long, Set<String>> documentTerms = new HashMap<>();
+
+    // Товары, измененные или удаленные через index()/remove() во время перестроения:
+    // пачка перестроения могла быть прочитана раньше, и ее версия таких товаров устарела.
+    // null, если перестроение не идет; доступ под lock
+    private Set<Long> changedDuringRebuild;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Полное построение индекса при старте: товары читаются пачками,
+    // разбор текста каждой пачки выполняется параллельно
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        int total;
+        try {
+            total = indexAll();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        ready = true;
+        log.info("Product search index built: {} products in {} ms", total, System.currentTimeMillis() - started);
+    }
+
+    private int indexAll() {
+        long lastId = 0;
+        int total = 0;
+        while (true) {
+            List<Product> batch = productRepository.findByIdGreaterThanOrderByIdAsc(
+                    lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                return total;
+            }
+            List<Map.Entry<Long, Map<String, Float>>> analyzed = batch.parallelStream()
+                    .map(product -> Map.entry(product.getId(), analyze(product)))
+                    .toList();
+
+            lock.writeLock().lock();
+            try {
+                for (Map.Entry<Long, Map<String, Float>> document : analyzed) {
+                    if (changedDuringRebuild.contains(document.getKey())) {
+                        // В индексе уже более новое состояние товара (или он удален)
+                        continue;
+                    }
+                    removeLocked(document.getKey());
+                    addLocked(document.getKey(), document.getValue());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+            total += batch.size();
+        }
+    }
+
+    public void index(Product product) {
+        Map<String, Float> terms = analyze(product);
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            addLocked(product.getId(), terms);
+            markChangedLocked(product.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+            markChangedLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void markChangedLocked(Long productId) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(productId);
+        }
+    }
+
+    // id товаров, содержащих все слова запроса, по убыванию релевантности
+    public List<Long> search(String query) {
+        return search(query, null, null, Integer.MAX_VALUE).ids();
+    }
+
+    // Страница результатов: limit товаров сразу после курсора after (или перед before).
+    // Позиция курсора ищется по его текущей релевантности и id, а не по месту в полном
+    // списке, и сортируются не все совпадения, а только limit ближайших к курсору
+    public RankedPage search(String query, Long after, Long before, int limit) {
+        List<String> queryTokens = Tokenizer.tokenize(query);
+        Long cursor = before != null ? before : after;
+        if (queryTokens.isEmpty()) {
+            return cursor != null ? RankedPage.CURSOR_LOST : new RankedPage(List.of(), false, false, false);
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Float> scores = score(queryTokens);
+            Map.Entry<Long, Float> cursorEntry = null;
+            if (cursor != null) {
+                Float cursorScore = scores.get(cursor);
+                if (cursorScore == null) {
+                    return RankedPage.CURSOR_LOST;
+                }
+                cursorEntry = Map.entry(cursor, cursorScore);
+            }
+
+            boolean forward = before == null;
+            Comparator<Map.Entry<Long, Float>> closer = forward ? RANKING : RANKING.reversed();
+            // В куче limit кандидатов, ближайших к курсору; в голове - самый дальний из них
+            PriorityQueue<Map.Entry<Long, Float>> nearest =
+                    new PriorityQueue<>(Math.min(limit, 64) + 1, closer.reversed());
+            int candidates = 0;
+            for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+                if (cursorEntry != null && closer.compare(entry, cursorEntry) <= 0) {
+                    continue;
+                }
+                candidates++;
+                nearest.add(entry);
+                if (nearest.size() > limit) {
+                    nearest.poll();
+                }
+            }
+
+            List<Map.Entry<Long, Float>> page = new ArrayList<>(nearest);
+            page.sort(RANKING);
+            List<Long> ids = new ArrayList<>(page.size());
+            for (Map.Entry<Long, Float> entry : page) {
+                ids.add(entry.getKey());
+            }
+            boolean more = candidates > limit;
+            return forward
+                    ? new RankedPage(ids, more, cursor != null, false)
+                    : new RankedPage(ids, true, more, false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Релевантность товаров, содержащих все слова запроса
+    private Map<Long, Float> score(List<String> queryTokens) {
+        Map<Long, Float> scores = null;
+        for (String token : new HashSet<>(queryTokens)) {
+            Map<Long, Float> tokenScores = new HashMap<>();
+            for (String term : matchingTerms(token)) {
+                float factor = term.equals(token) ? 1f : PARTIAL_MATCH_FACTOR;
+                postings.get(term).forEach((id, weight) -> tokenScores.merge(id, weight * factor, Float::sum));
+            }
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                // Товар должен совпасть с каждым словом запроса
+                scores.keySet().retainAll(tokenScores.keySet());
+                scores.replaceAll((id, score) -> score + tokenScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        return scores;
+    }
+
+    // Страница результатов поиска; cursorLost - товара-курсора больше нет среди совпадений
+    public record RankedPage(List<Long> ids, boolean hasNext, boolean hasPrevious, boolean cursorLost) {
+        static final RankedPage CURSOR_LOST = new RankedPage(List.of(), false, false, true);
+    }
+
+    private Map<String, Float> analyze(Product product) {
+        Map<String, Float> terms = new HashMap<>();
+        for (String token : Tokenizer.tokenize(product.getName())) {
+            terms.merge(token, NAME_WEIGHT, Float::sum);
+        }
+        for (String token : Tokenizer.tokenize(product.getDescription())) {
+            terms.merge(token, DESCRIPTION_WEIGHT, Float::sum);
+        }
+        return terms;
+    }
+
+    // Само слово и все слова словаря, содержащие его как подстроку.
+    // Слово короче триграммы ищется только как начало слов - по индексу префиксов
+    private Set<String> matchingTerms(String token) {
+        Set<String> terms = new HashSet<>();
+        if (token.length() < NGRAM) {
+            Set<String> withPrefix = prefixes.get(token);
+            if (withPrefix != null) {
+                terms.addAll(withPrefix);
+            }
+            return terms;
+        }
+
+        Set<String> candidates = null;
+        for (String gram : ngramsOf(token)) {
+            Set<String> withGram = ngrams.get(gram);
+            if (withGram == null) {
+                return terms;
+            }
+            if (candidates == null) {
+                candidates = new HashSet<>(withGram);
+            } else {
+                candidates.retainAll(withGram);
+            }
+        }
+        for (String candidate : candidates) {
+            if (candidate.contains(token)) {
+                terms.add(candidate);
+            }
+        }
+        return terms;
+    }
+
+    private void addLocked(Long productId, Map<String, Float> terms) {
+        for (Map.Entry<String, Float> term : terms.entrySet()) {
+            Map<Long, Float> documents = postings.get(term.getKey());
+            if (documents == null) {
+                documents = new HashMap<>();
+                postings.put(term.getKey(), documents);
+                for (String gram : ngramsOf(term.getKey())) {
+                    ngrams.computeIfAbsent(gram, g -> new HashSet<>()).add(term.getKey());
+                }
+                for (String prefix : shortPrefixesOf(term.getKey())) {
+                    prefixes.computeIfAbsent(prefix, p -> new HashSet<>()).add(term.getKey());
+                }
+            }
+            documents.put(productId, term.getValue());
+        }
+        documentTerms.put(productId, new HashSet<>(terms.keySet()));
+    }
+
+    private void removeLocked(Long productId) {
+        Set<String> terms = documentTerms.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Float> documents = postings.get(term);
+            documents.remove(productId);
+            if (documents.isEmpty()) {
+                // Слово больше не встречается - убираем его из словаря
+                postings.remove(term);
+                for (String gram : ngramsOf(term)) {
+                    Set<String> withGram = ngrams.get(gram);
+                    withGram.remove(term);
+                    if (withGram.isEmpty()) {
+                        ngrams.remove(gram);
+                    }
+                }
+                for (String prefix : shortPrefixesOf(term)) {
+                    Set<String> withPrefix = prefixes.get(prefix);
+                    withPrefix.remove(term);
+                    if (withPrefix.isEmpty()) {
+                        prefixes.remove(prefix);
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<String> shortPrefixesOf(String term) {
+        List<String> result = new ArrayList<>(NGRAM - 1);
+        for (int length = 1; length < NGRAM && length <= term.length(); length++) {
+            result.add(term.substring(0, length));
+        }
+        return result;
+    }
+
+    private static Set<String> ngramsOf(String term) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + NGRAM <= term.length(); i++) {
+            grams.add(term.substring(i, i + NGRAM));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.onlinestore.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Разбиение текста на слова для поисковых индексов:
+// нижний регистр по правилам русского языка, ё = е, разделители - все, кроме букв и цифр
+public final class Tokenizer {
+
+    private static final Locale RUSSIAN = Locale.forLanguageTag("ru");
+
+    private Tokenizer() {}
+
+    public static String normalize(String text) {
+        return text.toLowerCase(RUSSIAN).replace('ё', 'е');
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String normalized = normalize(text);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
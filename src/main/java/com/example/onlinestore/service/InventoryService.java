@@ -0,0 +1,304 @@
+package com.example.onlinestore.service;
+
+import com.example.onlinestore.repository.StockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Складской учет в памяти для "горячих" товаров.
+// Остатки каждого товара хранятся в отдельном счетчике со своей блокировкой,
+// заказы получают временные резервы (hold), а подтвержденные списания
+// пачками записываются в таблицу products фоновой задачей.
+@Service
+public class InventoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryService.class);
+
+    @Value("${app.inventory.ledger-enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.inventory.hold-ttl-seconds:300}")
+    private long holdTtlSeconds;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    private final Map<Long, SkuCounter> counters = new ConcurrentHashMap<>();
+    private final Map<Long, Hold> holds = new ConcurrentHashMap<>();
+    private final AtomicLong holdSequence = new AtomicLong();
+
+    // Один поток записи/сверки за раз
+    private final Object flushLock = new Object();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Резервирует позиции и привязывает резерв к текущей транзакции:
+    // после коммита списание ставится в очередь записи, после отката резерв снимается.
+    // Возвращает id товара, которого не хватило, или null при успехе
+    public Long reserveForCurrentTransaction(List<Map.Entry<Long, Integer>> lines) {
+        Hold hold = new Hold(holdSequence.incrementAndGet(), lines,
+                System.currentTimeMillis() + holdTtlSeconds * 1000);
+
+        Long shortProductId = tryHoldAll(lines);
+        if (shortProductId != null) {
+            return shortProductId;
+        }
+        holds.put(hold.id, hold);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean claimed;
+
+            // Резерв забирается до коммита, чтобы его не вернул expireHolds.
+            // Истекший резерв берется заново; если товара уже нет, транзакция откатывается
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                claim(hold);
+                claimed = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    commit(hold);
+                } else if (claimed) {
+                    releaseLines(hold.lines);
+                } else {
+                    release(hold.id);
+                }
+            }
+        });
+        return null;
+    }
+
+    // Возврат товаров на склад после коммита текущей транзакции (отмена заказа)
+    public void restockAfterCommit(List<Map.Entry<Long, Integer>> lines) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (Map.Entry<Long, Integer> line : lines) {
+                    counter(line.getKey()).restock(line.getValue());
+                }
+            }
+        });
+    }
+
+    public int getAvailable(Long productId) {
+        return counter(productId).available();
+    }
+
+    void claim(Hold hold) {
+        if (holds.remove(hold.id) != null) {
+            return;
+        }
+        log.info("Inventory hold {} expired before commit, reserving again", hold.id);
+        Long shortProductId = tryHoldAll(hold.lines);
+        if (shortProductId != null) {
+            throw new IllegalStateException("Недостаточно товара: #" + shortProductId +
+                    ". Резерв истек до подтверждения заказа");
+        }
+    }
+
+    void commit(Hold hold) {
+        for (Map.Entry<Long, Integer> line : hold.lines) {
+            counter(line.getKey()).commitHold(line.getValue());
+        }
+    }
+
+    void release(long holdId) {
+        Hold hold = holds.remove(holdId);
+        if (hold != null) {
+            releaseLines(hold.lines);
+        }
+    }
+
+    private void releaseLines(List<Map.Entry<Long, Integer>> lines) {
+        for (Map.Entry<Long, Integer> line : lines) {
+            counter(line.getKey()).releaseHold(line.getValue());
+        }
+    }
+
+    // Резервирует все позиции или ни одной; возвращает id товара, которого не хватило
+    private Long tryHoldAll(List<Map.Entry<Long, Integer>> lines) {
+        for (int i = 0; i < lines.size(); i++) {
+            Map.Entry<Long, Integer> line = lines.get(i);
+            if (!counter(line.getKey()).tryHold(line.getValue())) {
+                // Возвращаем уже зарезервированные позиции
+                releaseLines(lines.subList(0, i));
+                return line.getKey();
+            }
+        }
+        return null;
+    }
+
+    // Пересчитать счетчик товара по БД (после изменения остатка в админке)
+    public void refresh(Long productId) {
+        if (!enabled) {
+            return;
+        }
+        SkuCounter counter = counters.get(productId);
+        if (counter != null) {
+            synchronized (flushLock) {
+                reconcile(productId, counter);
+            }
+        }
+    }
+
+    public void evict(Long productId) {
+        counters.remove(productId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.hold-sweep-interval-ms:10000}")
+    public void expireHolds() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Hold hold : holds.values()) {
+            if (hold.expiresAt < now) {
+                release(hold.id);
+            }
+        }
+    }
+
+    // Пакетная запись накопленных списаний в таблицу products
+    @Scheduled(fixedDelayString = "${app.inventory.flush-interval-ms:1000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (flushLock) {
+            List<Map.Entry<Long, Integer>> lines = new ArrayList<>();
+            for (Map.Entry<Long, SkuCounter> entry : counters.entrySet()) {
+                int delta = entry.getValue().drainPending();
+                if (delta != 0) {
+                    lines.add(Map.entry(entry.getKey(), delta));
+                }
+            }
+            if (lines.isEmpty()) {
+                return;
+            }
+            lines.sort(Map.Entry.comparingByKey());
+            try {
+                stockRepository.decrement(lines);
+            } catch (RuntimeException e) {
+                // Возвращаем списания в очередь, повторим при следующем запуске
+                for (Map.Entry<Long, Integer> line : lines) {
+                    counter(line.getKey()).addPending(line.getValue());
+                }
+                log.warn("Error flushing inventory ledger: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Сверка счетчиков с таблицей products
+    @Scheduled(fixedDelayString = "${app.inventory.reconcile-interval-ms:60000}")
+    public void reconcileAll() {
+        if (!enabled) {
+            return;
+        }
+        flush();
+        synchronized (flushLock) {
+            for (Map.Entry<Long, SkuCounter> entry : counters.entrySet()) {
+                reconcile(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void reconcile(Long productId, SkuCounter counter) {
+        synchronized (counter) {
+            int stored = stockRepository.findStockQuantity(productId);
+            int expected = counter.available + counter.held + counter.pending;
+            if (stored != expected) {
+                log.info("Inventory ledger drift: productId={} db={} ledger={}", productId, stored, expected);
+                counter.available += stored - expected;
+            }
+        }
+    }
+
+    private SkuCounter counter(Long productId) {
+        SkuCounter counter = counters.get(productId);
+        if (counter == null) {
+            // Загружаем остаток вне блокировок ConcurrentHashMap
+            SkuCounter loaded = new SkuCounter(stockRepository.findStockQuantity(productId));
+            counter = counters.putIfAbsent(productId, loaded);
+            if (counter == null) {
+                counter = loaded;
+            }
+        }
+        return counter;
+    }
+
+    // Счетчик одного товара: доступно + в резерве + ожидает записи в БД = остаток в БД
+    static final class SkuCounter {
+        private int available;
+        private int held;
+        private int pending;
+
+        SkuCounter(int available) {
+            this.available = available;
+        }
+
+        synchronized boolean tryHold(int quantity) {
+            if (available < quantity) {
+                return false;
+            }
+            available -= quantity;
+            held += quantity;
+            return true;
+        }
+
+        synchronized void releaseHold(int quantity) {
+            held -= quantity;
+            available += quantity;
+        }
+
+        synchronized void commitHold(int quantity) {
+            held -= quantity;
+            pending += quantity;
+        }
+
+        synchronized void restock(int quantity) {
+            available += quantity;
+            pending -= quantity;
+        }
+
+        synchronized void addPending(int quantity) {
+            pending += quantity;
+        }
+
+        synchronized int drainPending() {
+            int drained = pending;
+            pending = 0;
+            return drained;
+        }
+
+        synchronized int available() {
+            return available;
+        }
+    }
+
+    private static final class Hold {
+        private final long id;
+        private final List<Map.Entry<Long, Integer>> lines;
+        private final long expiresAt;
+
+        Hold(long id, List<Map.Entry<Long, Integer>> lines, long expiresAt) {
+            this.id = id;
+            this.lines = lines;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
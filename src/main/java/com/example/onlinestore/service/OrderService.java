@@ -1,37 +1,89 @@
 package com.example.onlinestore.service;
 
+import com.example.onlinestore.cart.CartLine;
+import com.example.onlinestore.dto.OrderSummary;
 import com.example.onlinestore.model.*;
 import com.example.onlinestore.repository.OrderRepository;
+import com.example.onlinestore.repository.ProductRepository;
+import com.example.onlinestore.repository.StockRepository;
+import com.example.onlinestore.search.OrderSearchIndex;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class OrderService {
 
+    private static final Logger log = LoggerFactory.getLogger(OrderService.class);
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     private OrderRepository orderRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Autowired
     private ProductService productService;
 
-    public Order createOrderFromCart(ShoppingCartService cartService, String customerName,
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private OrderStatsService orderStatsService;
+
+    @Autowired
+    private OrderSearchIndex orderSearchIndex;
+
+    @Autowired
+    private ShoppingCartService cartService;
+
+    public Order createOrderFromCart(String cartId, String customerName,
                                      String customerEmail, String customerAddress) {
+        return createOrderFromCart(cartId, customerName, customerEmail, customerAddress, null);
+    }
+
+    // visitorId - посетитель, которому разрешено оплатить заказ
+    public Order createOrderFromCart(String cartId, String customerName,
+                                     String customerEmail, String customerAddress, String visitorId) {
 
-        List<CartItem> cartItems = cartService.getCartItems();
+        List<CartLine> cartLines = cartService.getLines(cartId);
 
-        System.out.println("Creating order for: " + customerName);
-        System.out.println("Cart items count: " + cartItems.size());
+        log.debug("Creating order: customer={} lines={}", customerName, cartLines.size());
 
-        if (cartItems.isEmpty()) {
+        if (cartLines.isEmpty()) {
             throw new IllegalStateException("Корзина пуста");
         }
 
@@ -40,31 +92,66 @@ public class OrderService {
         order.setCustomerName(customerName);
         order.setCustomerEmail(customerEmail);
         order.setCustomerAddress(customerAddress);
+        order.setVisitorId(visitorId);
         order.setOrderDate(LocalDateTime.now());
         order.setStatus(OrderStatus.PENDING);
 
-        BigDecimal totalAmount = BigDecimal.ZERO;
-
-        // Добавляем товары в заказ и обновляем остатки
-        for (CartItem cartItem : cartItems) {
-            Product product = cartItem.getProduct();
-            Integer quantity = cartItem.getQuantity();
+        // Резервируем остатки одним batch-запросом. Позиции упорядочены по id товара,
+        // чтобы параллельные заказы захватывали блокировки строк в одном порядке
+        Map<Long, CartLine> itemsByProductId = new TreeMap<>();
+        for (CartLine cartLine : cartLines) {
+            itemsByProductId.put(cartLine.productId(), cartLine);
+        }
 
-            System.out.println("Processing product: " + product.getName() + ", quantity: " + quantity);
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(itemsByProductId.size());
+        for (Map.Entry<Long, CartLine> entry : itemsByProductId.entrySet()) {
+            // Отрицательное количество вернуло бы товар на склад и уменьшило сумму заказа
+            if (entry.getValue().quantity() <= 0) {
+                throw new IllegalStateException("Некорректное количество товара #" + entry.getKey() +
+                        ": " + entry.getValue().quantity());
+            }
+            lines.add(Map.entry(entry.getKey(), entry.getValue().quantity()));
+        }
 
-            // Проверяем доступное количество
-            if (product.getStockQuantity() < quantity) {
-                throw new IllegalStateException("Недостаточно товара: " + product.getName() +
-                        ". Доступно: " + product.getStockQuantity() +
-                        ", запрошено: " + quantity);
+        if (inventoryService.isEnabled()) {
+            // Резерв в памяти, списание в БД выполнит фоновая пакетная запись
+            Long shortProductId = inventoryService.reserveForCurrentTransaction(lines);
+            if (shortProductId != null) {
+                throw insufficientStock(itemsByProductId.get(shortProductId),
+                        inventoryService.getAvailable(shortProductId));
+            }
+        } else {
+            int[] updated = stockRepository.reserve(lines);
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] != 1) {
+                    // Исключение откатывает всю транзакцию вместе с уже списанными позициями
+                    Long productId = lines.get(i).getKey();
+                    throw insufficientStock(itemsByProductId.get(productId),
+                            stockRepository.findStockQuantity(productId));
+                }
             }
+        }
 
-            // Обновляем остатки
-            product.setStockQuantity(product.getStockQuantity() - quantity);
-            productService.saveProduct(product);
+        productService.evictAfterCommit(new ArrayList<>(itemsByProductId.keySet()));
 
-            // Создаем позицию заказа
-            OrderItem orderItem = new OrderItem(product, quantity);
+        // Цены берутся из БД на момент оформления, а не из снимка в корзине
+        Map<Long, BigDecimal> prices = new HashMap<>();
+        for (Object[] row : productRepository.findPricesByIdIn(itemsByProductId.keySet())) {
+            prices.put((Long) row[0], (BigDecimal) row[1]);
+        }
+
+        BigDecimal totalAmount = BigDecimal.ZERO;
+
+        // Добавляем товары в заказ
+        for (CartLine cartLine : itemsByProductId.values()) {
+            BigDecimal price = prices.get(cartLine.productId());
+            if (price == null) {
+                throw new IllegalStateException("Товар не найден: #" + cartLine.productId());
+            }
+            // Ссылка на товар без загрузки: в позицию нужен только внешний ключ
+            Product product = entityManager.getReference(Product.class, cartLine.productId());
+
+            OrderItem orderItem = new OrderItem(product, cartLine.quantity(), price);
             order.addItem(orderItem);
 
             totalAmount = totalAmount.add(orderItem.getTotalPrice());
@@ -74,18 +161,54 @@ public class OrderService {
 
         // Сохраняем заказ и очищаем корзину
         Order savedOrder = orderRepository.save(order);
-        cartService.clearCart();
+        orderStatsService.orderCreatedAfterCommit(savedOrder);
+        orderSearchIndex.index(savedOrder);
+        // Корзина очищается только если заказ действительно сохранен
+        clearCartAfterCommit(cartId);
 
-        System.out.println("Order created successfully with ID: " + savedOrder.getId());
+        log.info("Order created: orderId={} lines={} total={}", savedOrder.getId(), itemsByProductId.size(), totalAmount);
 
         return savedOrder;
     }
 
+    private void clearCartAfterCommit(String cartId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cartService.clearCart(cartId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cartService.clearCart(cartId);
+            }
+        });
+    }
+
+    private IllegalStateException insufficientStock(CartLine cartLine, int available) {
+        String name = productService.getProductById(cartLine.productId())
+                .map(Product::getName)
+                .orElse("#" + cartLine.productId());
+        return new IllegalStateException("Недостаточно товара: " + name +
+                ". Доступно: " + available +
+                ", запрошено: " + cartLine.quantity());
+    }
+
     public List<Order> getAllOrders() {
         try {
             return orderRepository.findAllByOrderByOrderDateDesc();
         } catch (Exception e) {
-            System.err.println("Error getting all orders: " + e.getMessage());
+            log.warn("Error getting all orders", e);
+            return Collections.emptyList();
+        }
+    }
+
+    // Страница списка заказов (проекция), от новых к старым; beforeId - курсор
+    public List<OrderSummary> getOrderSummaries(Long beforeId, int size) {
+        try {
+            return orderRepository.findSummariesBefore(beforeId != null ? beforeId : Long.MAX_VALUE,
+                    PageRequest.of(0, Math.min(size, MAX_PAGE_SIZE)));
+        } catch (Exception e) {
+            log.warn("Error getting order summaries", e);
             return Collections.emptyList();
         }
     }
@@ -95,22 +218,30 @@ public class OrderService {
                 .orElseThrow(() -> new IllegalArgumentException("Заказ не найден: " + id));
     }
 
+    // Заказ вместе с позициями и товарами - одним запросом
+    public Order getOrderWithItems(Long id) {
+        return orderRepository.findWithItemsById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Заказ не найден: " + id));
+    }
+
     public void updateOrderStatus(Long id, OrderStatus status) {
         try {
             Order order = getOrderById(id);
+            OrderStatus oldStatus = order.getStatus();
             order.setStatus(status);
             orderRepository.save(order);
-            System.out.println("Order " + id + " status updated to: " + status);
+            orderStatsService.statusChangedAfterCommit(order, oldStatus);
+            log.info("Order status updated: orderId={} status={}", id, status);
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при обновлении статуса заказа: " + e.getMessage(), e);
         }
     }
 
-    public List<Order> getOrdersByEmail(String email) {
+    public List<OrderSummary> getOrdersByEmail(String email) {
         try {
-            return orderRepository.findByCustomerEmailOrderByOrderDateDesc(email);
+            return orderRepository.findSummariesByCustomerEmail(email);
         } catch (Exception e) {
-            System.err.println("Error getting orders by email: " + e.getMessage());
+            log.warn("Error getting orders by email", e);
             return Collections.emptyList();
         }
     }
@@ -119,7 +250,7 @@ public class OrderService {
         try {
             return orderRepository.findByStatusOrderByOrderDateDesc(status);
         } catch (Exception e) {
-            System.err.println("Error getting orders by status: " + e.getMessage());
+            log.warn("Error getting orders by status", e);
             return Collections.emptyList();
         }
     }
@@ -129,15 +260,23 @@ public class OrderService {
             Order order = getOrderById(id);
 
             // Возвращаем товары на склад
+            List<Map.Entry<Long, Integer>> lines = new ArrayList<>(order.getItems().size());
             for (OrderItem item : order.getItems()) {
-                Product product = item.getProduct();
-                product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-                productService.saveProduct(product);
+                lines.add(Map.entry(item.getProduct().getId(), item.getQuantity()));
+            }
+            lines.sort(Map.Entry.comparingByKey());
+            if (inventoryService.isEnabled()) {
+                inventoryService.restockAfterCommit(lines);
+            } else {
+                stockRepository.release(lines);
             }
+            productService.evictAfterCommit(lines.stream().map(Map.Entry::getKey).toList());
 
+            OrderStatus oldStatus = order.getStatus();
             order.setStatus(OrderStatus.CANCELLED);
             orderRepository.save(order);
-            System.out.println("Order " + id + " cancelled successfully");
+            orderStatsService.statusChangedAfterCommit(order, oldStatus);
+            log.info("Order cancelled: orderId={}", id);
 
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при отмене заказа: " + e.getMessage(), e);
@@ -146,96 +285,113 @@ public class OrderService {
 
     public Long getTotalOrdersCount() {
         try {
+            if (orderStatsService.isSeeded()) {
+                return orderStatsService.getTotalOrdersCount();
+            }
             return orderRepository.count();
         } catch (Exception e) {
-            System.err.println("Error getting total orders count: " + e.getMessage());
+            log.warn("Error getting total orders count", e);
             return 0L;
         }
     }
 
     public BigDecimal getTotalRevenue() {
         try {
-            List<Order> allOrders = orderRepository.findAll();
+            if (orderStatsService.isSeeded()) {
+                return orderStatsService.getTotalRevenue();
+            }
             BigDecimal revenue = BigDecimal.ZERO;
-
-            for (Order order : allOrders) {
-                if (order.getStatus() == OrderStatus.COMPLETED ||
-                        order.getStatus() == OrderStatus.DELIVERED ||
-                        order.getStatus() == OrderStatus.PROCESSING) {
-                    revenue = revenue.add(order.getTotalAmount());
+            for (OrderStatus status : OrderStatsService.REVENUE_STATUSES) {
+                BigDecimal amount = orderRepository.getTotalAmountByStatus(status);
+                if (amount != null) {
+                    revenue = revenue.add(amount);
                 }
             }
-
             return revenue;
         } catch (Exception e) {
-            System.err.println("Error calculating total revenue: " + e.getMessage());
+            log.warn("Error calculating total revenue", e);
             return BigDecimal.ZERO;
         }
     }
 
-    public List<Order> getRecentOrders(int count) {
+    public List<OrderSummary> getRecentOrders(int count) {
         try {
-            List<Order> allOrders = orderRepository.findAllByOrderByOrderDateDesc();
-            return allOrders.stream()
-                    .limit(count)
-                    .collect(Collectors.toList());
+            return orderRepository.findRecentSummaries(PageRequest.of(0, count));
         } catch (Exception e) {
-            System.err.println("Error getting recent orders: " + e.getMessage());
+            log.warn("Error getting recent orders", e);
             return Collections.emptyList();
         }
     }
 
     public Long getPendingOrdersCount() {
         try {
-            List<Order> pendingOrders = orderRepository.findByStatusOrderByOrderDateDesc(OrderStatus.PENDING);
-            return (long) pendingOrders.size();
+            if (orderStatsService.isSeeded()) {
+                return orderStatsService.getOrdersCount(OrderStatus.PENDING);
+            }
+            return orderRepository.countByStatus(OrderStatus.PENDING);
         } catch (Exception e) {
-            System.err.println("Error getting pending orders count: " + e.getMessage());
+            log.warn("Error getting pending orders count", e);
             return 0L;
         }
     }
 
     public BigDecimal getMonthlyRevenue() {
         try {
-            LocalDateTime startOfMonth = LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
-            List<Order> allOrders = orderRepository.findAll();
-
-            BigDecimal monthlyRevenue = BigDecimal.ZERO;
-            for (Order order : allOrders) {
-                if (order.getOrderDate().isAfter(startOfMonth) &&
-                        (order.getStatus() == OrderStatus.COMPLETED ||
-                                order.getStatus() == OrderStatus.DELIVERED ||
-                                order.getStatus() == OrderStatus.PROCESSING)) {
-                    monthlyRevenue = monthlyRevenue.add(order.getTotalAmount());
-                }
+            YearMonth month = YearMonth.now();
+            if (orderStatsService.isSeeded()) {
+                return orderStatsService.getRevenue(month);
             }
-
-            return monthlyRevenue;
+            BigDecimal revenue = orderRepository.getTotalAmountSince(
+                    month.atDay(1).atStartOfDay(), OrderStatsService.REVENUE_STATUSES);
+            return revenue != null ? revenue : BigDecimal.ZERO;
         } catch (Exception e) {
-            System.err.println("Error calculating monthly revenue: " + e.getMessage());
+            log.warn("Error calculating monthly revenue", e);
             return BigDecimal.ZERO;
         }
     }
 
-    public List<Order> getOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+    // Страница заказов за период, от новых к старым.
+    // cursorDate/cursorId - дата и id последнего заказа предыдущей страницы (null для первой)
+    public List<Order> getOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate,
+                                            LocalDateTime cursorDate, Long cursorId, int size) {
         try {
-            List<Order> allOrders = orderRepository.findAll();
-            return allOrders.stream()
-                    .filter(order -> !order.getOrderDate().isBefore(startDate) &&
-                            !order.getOrderDate().isAfter(endDate))
-                    .sorted((o1, o2) -> o2.getOrderDate().compareTo(o1.getOrderDate()))
-                    .collect(Collectors.toList());
+            PageRequest limit = PageRequest.of(0, Math.min(size, MAX_PAGE_SIZE));
+            if (cursorDate == null || cursorId == null) {
+                return orderRepository.findByOrderDateBetweenBefore(startDate, endDate,
+                        endDate, Long.MAX_VALUE, limit);
+            }
+            return orderRepository.findByOrderDateBetweenBefore(startDate, endDate, cursorDate, cursorId, limit);
         } catch (Exception e) {
-            System.err.println("Error getting orders by date range: " + e.getMessage());
+            log.warn("Error getting orders by date range", e);
             return Collections.emptyList();
         }
     }
 
+    // Обход заказов за период без загрузки всего списка в память:
+    // строки читаются через курсор, обработанные заказы отсоединяются от контекста
+    @Transactional(readOnly = true)
+    public long forEachOrderByDateRange(LocalDateTime startDate, LocalDateTime endDate, Consumer<Order> action) {
+        long count = 0;
+        try (Stream<Order> orders = orderRepository.streamByOrderDateBetween(startDate, endDate)) {
+            Iterator<Order> iterator = orders.iterator();
+            while (iterator.hasNext()) {
+                Order order = iterator.next();
+                action.accept(order);
+                entityManager.detach(order);
+                count++;
+            }
+        }
+        return count;
+    }
+
     public void deleteOrder(Long id) {
         try {
-            if (orderRepository.existsById(id)) {
-                orderRepository.deleteById(id);
-                System.out.println("Order " + id + " deleted successfully");
+            Optional<Order> order = orderRepository.findById(id);
+            if (order.isPresent()) {
+                orderRepository.delete(order.get());
+                orderSearchIndex.remove(id);
+                orderStatsService.orderDeletedAfterCommit(order.get());
+                log.info("Order deleted: orderId={}", id);
             } else {
                 throw new IllegalArgumentException("Заказ с ID " + id + " не найден");
             }
@@ -246,10 +402,14 @@ public class OrderService {
 
     public Order updateOrder(Order order) {
         try {
-            if (!orderRepository.existsById(order.getId())) {
-                throw new IllegalArgumentException("Заказ с ID " + order.getId() + " не найден");
-            }
-            return orderRepository.save(order);
+            Order existing = orderRepository.findById(order.getId())
+                    .orElseThrow(() -> new IllegalArgumentException("Заказ с ID " + order.getId() + " не найден"));
+            // Снимок до сохранения: merge перезапишет управляемую сущность
+            orderStatsService.orderDeletedAfterCommit(existing);
+            Order saved = orderRepository.save(order);
+            orderStatsService.orderCreatedAfterCommit(saved);
+            orderSearchIndex.index(saved);
+            return saved;
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при обновлении заказа: " + e.getMessage(), e);
         }
@@ -259,24 +419,25 @@ public class OrderService {
         try {
             return orderRepository.existsById(id);
         } catch (Exception e) {
-            System.err.println("Error checking if order exists: " + e.getMessage());
+            log.warn("Error checking if order exists", e);
             return false;
         }
     }
 
-    public List<Order> searchOrders(String searchTerm) {
+    public List<OrderSummary> searchOrders(String searchTerm) {
+        return searchOrders(searchTerm, null, DEFAULT_PAGE_SIZE);
+    }
+
+    // Поиск по индексу order_search_prefixes; beforeId - id последнего заказа предыдущей страницы
+    public List<OrderSummary> searchOrders(String searchTerm, Long beforeId, int size) {
         try {
-            List<Order> allOrders = orderRepository.findAll();
-            return allOrders.stream()
-                    .filter(order ->
-                            String.valueOf(order.getId()).contains(searchTerm) ||
-                                    order.getCustomerName().toLowerCase().contains(searchTerm.toLowerCase()) ||
-                                    order.getCustomerEmail().toLowerCase().contains(searchTerm.toLowerCase()) ||
-                                    order.getCustomerAddress().toLowerCase().contains(searchTerm.toLowerCase()))
-                    .sorted((o1, o2) -> o2.getOrderDate().compareTo(o1.getOrderDate()))
-                    .collect(Collectors.toList());
+            List<Long> ids = orderSearchIndex.search(searchTerm, beforeId, Math.min(size, MAX_PAGE_SIZE));
+            if (ids.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return orderRepository.findSummariesByIdIn(ids);
         } catch (Exception e) {
-            System.err.println("Error searching orders: " + e.getMessage());
+            log.warn("Error searching orders", e);
             return Collections.emptyList();
         }
     }
@@ -286,7 +447,7 @@ public class OrderService {
             Order order = getOrderById(id);
             return order.getStatus();
         } catch (Exception e) {
-            System.err.println("Error getting order status: " + e.getMessage());
+            log.warn("Error getting order status", e);
             return OrderStatus.PENDING;
         }
     }
@@ -298,19 +459,18 @@ public class OrderService {
                     .mapToInt(OrderItem::getQuantity)
                     .sum();
         } catch (Exception e) {
-            System.err.println("Error getting total items in order: " + e.getMessage());
+            log.warn("Error getting total items in order", e);
             return 0;
         }
     }
 
+    // Последние заказы за сегодня (не больше MAX_PAGE_SIZE), дальше - через курсор
     public List<Order> getTodayOrders() {
         try {
-            LocalDateTime startOfDay = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
-            LocalDateTime endOfDay = LocalDateTime.now().withHour(23).withMinute(59).withSecond(59);
-
-            return getOrdersByDateRange(startOfDay, endOfDay);
+            LocalDate today = LocalDate.now();
+            return getOrdersByDateRange(today.atStartOfDay(), today.atTime(LocalTime.MAX), null, null, MAX_PAGE_SIZE);
         } catch (Exception e) {
-            System.err.println("Error getting today's orders: " + e.getMessage());
+            log.warn("Error getting today's orders", e);
             return Collections.emptyList();
         }
     }
@@ -0,0 +1,232 @@
+package com.example.onlinestore.service;
+
+import com.example.onlinestore.model.Order;
+import com.example.onlinestore.model.OrderStatus;
+import com.example.onlinestore.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Счетчики заказов и выручки для панели администратора.
+// Начальные значения берутся агрегирующими запросами при старте,
+// дальше обновляются при создании заказа, смене статуса и отмене.
+@Service
+public class OrderStatsService {
+
+    // Статусы, которые учитываются в выручке
+    public static final Set<OrderStatus> REVENUE_STATUSES =
+            EnumSet.of(OrderStatus.COMPLETED, OrderStatus.DELIVERED, OrderStatus.PROCESSING);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Map<OrderStatus, Long> countByStatus = new EnumMap<>(OrderStatus.class);
+    private Map<OrderStatus, BigDecimal> amountByStatus = new EnumMap<>(OrderStatus.class);
+    private Map<YearMonth, Map<OrderStatus, BigDecimal>> amountByMonth = new HashMap<>();
+    private volatile boolean seeded;
+
+    // Заказы, измененные во время пересчета: id -> состояние после изменения (null - удален);
+    // null, если пересчет не идет
+    private Map<Long, OrderSnapshot> seedChanges;
+
+    // Все запросы читают один снимок базы, он создается первым запросом. Коммит не связан
+    // со снимком по времени: изменение, сделанное до снимка, может дойти до afterCommit уже
+    // после него, и наоборот. Поэтому для заказов, измененных во время пересчета, вклад их
+    // строки в снимке заменяется последним известным состоянием - так изменение не теряется
+    // и не учитывается дважды, в каком бы порядке ни пришли коммит и снимок.
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.stats.reseed-interval-ms:3600000}",
+            fixedDelayString = "${app.stats.reseed-interval-ms:3600000}")
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void seed() {
+        synchronized (this) {
+            seedChanges = new HashMap<>();
+        }
+        try {
+            Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+            Map<OrderStatus, BigDecimal> amounts = new EnumMap<>(OrderStatus.class);
+            for (Object[] row : orderRepository.sumByStatus()) {
+                counts.put((OrderStatus) row[0], (Long) row[1]);
+                amounts.put((OrderStatus) row[0], (BigDecimal) row[2]);
+            }
+
+            Map<YearMonth, Map<OrderStatus, BigDecimal>> months = new HashMap<>();
+            for (Object[] row : orderRepository.sumByMonthAndStatus()) {
+                YearMonth month = YearMonth.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+                months.computeIfAbsent(month, m -> new EnumMap<>(OrderStatus.class))
+                        .put((OrderStatus) row[2], (BigDecimal) row[3]);
+            }
+
+            // Строки измененных заказов из того же снимка; изменения могут приходить, пока они читаются
+            Set<Long> read = new HashSet<>();
+            Map<Long, OrderSnapshot> snapshotRows = new HashMap<>();
+            while (true) {
+                List<Long> ids;
+                synchronized (this) {
+                    ids = new ArrayList<>(seedChanges.keySet());
+                    ids.removeAll(read);
+                    if (ids.isEmpty()) {
+                        countByStatus = counts;
+                        amountByStatus = amounts;
+                        amountByMonth = months;
+                        for (Map.Entry<Long, OrderSnapshot> change : seedChanges.entrySet()) {
+                            OrderSnapshot before = snapshotRows.get(change.getKey());
+                            if (before != null) {
+                                applyLocked(before, -1);
+                            }
+                            if (change.getValue() != null) {
+                                applyLocked(change.getValue(), 1);
+                            }
+                        }
+                        seeded = true;
+                        return;
+                    }
+                }
+                for (Object[] row : orderRepository.findStatsRowsByIdIn(ids)) {
+                    snapshotRows.put((Long) row[0], new OrderSnapshot((Long) row[0], (OrderStatus) row[1],
+                            (BigDecimal) row[2], (LocalDateTime) row[3]));
+                }
+                read.addAll(ids);
+            }
+        } finally {
+            synchronized (this) {
+                seedChanges = null;
+            }
+        }
+    }
+
+    public void orderCreatedAfterCommit(Order order) {
+        OrderSnapshot snapshot = new OrderSnapshot(order);
+        afterCommit(() -> apply(snapshot.id, null, snapshot));
+    }
+
+    public void statusChangedAfterCommit(Order order, OrderStatus oldStatus) {
+        OrderSnapshot snapshot = new OrderSnapshot(order);
+        OrderSnapshot old = snapshot.withStatus(oldStatus);
+        afterCommit(() -> apply(snapshot.id, old, snapshot));
+    }
+
+    // Смена статуса без загрузки заказа (OrderStatusRelay)
+    public void statusChangedAfterCommit(Long orderId, OrderStatus oldStatus, OrderStatus newStatus,
+                                         BigDecimal amount, LocalDateTime orderDate) {
+        OrderSnapshot snapshot = new OrderSnapshot(orderId, newStatus, amount, orderDate);
+        OrderSnapshot old = snapshot.withStatus(oldStatus);
+        afterCommit(() -> apply(orderId, old, snapshot));
+    }
+
+    public void orderDeletedAfterCommit(Order order) {
+        OrderSnapshot snapshot = new OrderSnapshot(order);
+        afterCommit(() -> apply(snapshot.id, snapshot, null));
+    }
+
+    public synchronized long getTotalOrdersCount() {
+        long total = 0;
+        for (Long count : countByStatus.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    public synchronized long getOrdersCount(OrderStatus status) {
+        return countByStatus.getOrDefault(status, 0L);
+    }
+
+    public synchronized BigDecimal getTotalRevenue() {
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (OrderStatus status : REVENUE_STATUSES) {
+            revenue = revenue.add(amountByStatus.getOrDefault(status, BigDecimal.ZERO));
+        }
+        return revenue;
+    }
+
+    public synchronized BigDecimal getRevenue(YearMonth month) {
+        Map<OrderStatus, BigDecimal> amounts = amountByMonth.get(month);
+        if (amounts == null) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (OrderStatus status : REVENUE_STATUSES) {
+            revenue = revenue.add(amounts.getOrDefault(status, BigDecimal.ZERO));
+        }
+        return revenue;
+    }
+
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    // before - состояние до изменения (null - заказа не было), after - после (null - удален)
+    private synchronized void apply(Long orderId, OrderSnapshot before, OrderSnapshot after) {
+        if (before != null) {
+            applyLocked(before, -1);
+        }
+        if (after != null) {
+            applyLocked(after, 1);
+        }
+        if (seedChanges != null && orderId != null) {
+            seedChanges.put(orderId, after);
+        }
+    }
+
+    private void applyLocked(OrderSnapshot order, int sign) {
+        BigDecimal amount = sign > 0 ? order.amount : order.amount.negate();
+        countByStatus.merge(order.status, (long) sign, Long::sum);
+        amountByStatus.merge(order.status, amount, BigDecimal::add);
+        amountByMonth.computeIfAbsent(YearMonth.from(order.orderDate), m -> new EnumMap<>(OrderStatus.class))
+                .merge(order.status, amount, BigDecimal::add);
+    }
+
+    // Изменения учитываются только после успешного коммита
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static final class OrderSnapshot {
+        private final Long id;
+        private final OrderStatus status;
+        private final BigDecimal amount;
+        private final LocalDateTime orderDate;
+
+        OrderSnapshot(Order order) {
+            this(order.getId(), order.getStatus(), order.getTotalAmount(), order.getOrderDate());
+        }
+
+        OrderSnapshot(Long id, OrderStatus status, BigDecimal amount, LocalDateTime orderDate) {
+            this.id = id;
+            this.status = status;
+            this.amount = amount != null ? amount : BigDecimal.ZERO;
+            this.orderDate = orderDate;
+        }
+
+        OrderSnapshot withStatus(OrderStatus status) {
+            return new OrderSnapshot(id, status, amount, orderDate);
+        }
+    }
+}
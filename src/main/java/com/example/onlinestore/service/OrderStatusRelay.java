@@ -0,0 +1,191 @@
+package com.example.onlinestore.service;
+
+import com.example.onlinestore.model.OrderStatus;
+import com.example.onlinestore.model.OrderStatusOutbox;
+import com.example.onlinestore.repository.OrderStatusOutboxRepository;
+import com.example.onlinestore.repository.OrderStatusOutboxRepository.OrderState;
+import com.example.onlinestore.repository.OrderStatusOutboxRepository.StatusChange;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Переносит смены статусов из order_status_outbox в таблицу orders.
+// Пачка применяется в одной короткой транзакции: точечный UPDATE колонки status
+// и удаление обработанных записей. При ошибке записи остаются и будут
+// применены при следующем запуске.
+// Поток релея будится после коммита записи в outbox; редкий опрос по таймеру
+// подбирает записи, сигнал о которых потерян (например, при перезапуске).
+@Service
+public class OrderStatusRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStatusRelay.class);
+
+    // Переходы, которые может выполнить релей: событие оплаты не возвращает заказ назад
+    // и не трогает завершенные и отмененные заказы
+    private static final Map<OrderStatus, Set<OrderStatus>> ALLOWED_TRANSITIONS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        ALLOWED_TRANSITIONS.put(OrderStatus.PENDING, EnumSet.of(OrderStatus.PROCESSING, OrderStatus.SHIPPED,
+                OrderStatus.DELIVERED, OrderStatus.COMPLETED, OrderStatus.CANCELLED));
+        ALLOWED_TRANSITIONS.put(OrderStatus.PROCESSING, EnumSet.of(OrderStatus.SHIPPED,
+                OrderStatus.DELIVERED, OrderStatus.COMPLETED, OrderStatus.CANCELLED));
+        ALLOWED_TRANSITIONS.put(OrderStatus.SHIPPED, EnumSet.of(OrderStatus.DELIVERED, OrderStatus.COMPLETED));
+    }
+
+    @Value("${app.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.outbox.relay-interval-ms:10000}")
+    private long pollIntervalMs;
+
+    @Autowired
+    private OrderStatusOutboxRepository outboxRepository;
+
+    @Autowired
+    private OrderStatsService orderStatsService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Semaphore wakeUps = new Semaphore(0);
+    private Thread worker;
+    private volatile boolean running;
+
+    public OrderStatusRelay(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Запись в outbox в транзакции вызывающего кода; релей запускается после ее коммита
+    public void append(Long orderId, OrderStatus status) {
+        outboxRepository.append(orderId, status);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            wakeUps.release();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wakeUps.release();
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        worker = new Thread(this::work, "order-status-relay");
+        worker.start();
+    }
+
+    // Поток будится сигналом, а не прерыванием, чтобы не оборвать транзакцию пачки
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker == null) {
+            return;
+        }
+        wakeUps.release();
+        worker.join(5000);
+        if (worker.isAlive()) {
+            worker.interrupt();
+            worker.join(5000);
+        }
+    }
+
+    private void work() {
+        while (running) {
+            try {
+                wakeUps.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // Несколько сигналов подряд обрабатываются одним проходом
+            wakeUps.drainPermits();
+            if (running) {
+                relay();
+            }
+        }
+    }
+
+    public synchronized void relay() {
+        try {
+            Integer processed;
+            do {
+                processed = transactionTemplate.execute(status -> relayBatch());
+            } while (processed != null && processed == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Error relaying order status outbox: {}", e.getMessage());
+        }
+    }
+
+    private int relayBatch() {
+        List<OrderStatusOutbox> entries = outboxRepository.findBatch(batchSize);
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        // Для каждого заказа важен последний статус
+        Map<Long, OrderStatus> targets = new LinkedHashMap<>();
+        List<Long> entryIds = new ArrayList<>(entries.size());
+        for (OrderStatusOutbox entry : entries) {
+            targets.put(entry.getOrderId(), entry.getStatus());
+            entryIds.add(entry.getId());
+        }
+
+        List<OrderState> changed = new ArrayList<>();
+        for (OrderState order : outboxRepository.findOrderStates(targets.keySet())) {
+            OrderStatus target = targets.get(order.id());
+            if (order.status() == target) {
+                continue;
+            }
+            if (!ALLOWED_TRANSITIONS.getOrDefault(order.status(), Set.of()).contains(target)) {
+                // Например, оплата пришла после отмены заказа: отмену не перетираем
+                log.warn("Order {} is {}, outbox status {} rejected", order.id(), order.status(), target);
+                continue;
+            }
+            changed.add(order);
+        }
+        // Сортировка по id - одинаковый порядок блокировок строк orders
+        changed.sort(Comparator.comparing(OrderState::id));
+        List<StatusChange> updates = new ArrayList<>(changed.size());
+        for (OrderState order : changed) {
+            updates.add(new StatusChange(order.id(), order.status(), targets.get(order.id())));
+        }
+
+        int[] counts = outboxRepository.updateOrderStatuses(updates);
+        for (int i = 0; i < counts.length; i++) {
+            OrderState order = changed.get(i);
+            if (counts[i] == 1) {
+                orderStatsService.statusChangedAfterCommit(order.id(), order.status(), targets.get(order.id()),
+                        order.totalAmount(), order.orderDate());
+            } else {
+                // Статус уже сменили после чтения - изменение администратора не перетираем
+                log.info("Order {} status changed concurrently, outbox status {} skipped",
+                        order.id(), targets.get(order.id()));
+            }
+        }
+        // Записи удаленных заказов тоже удаляются
+        outboxRepository.delete(entryIds);
+        return entries.size();
+    }
+}
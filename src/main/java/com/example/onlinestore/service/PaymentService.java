@@ -8,21 +8,28 @@ import com.example.onlinestore.model.PaymentStatus; // Добавляем имп
 import com.example.onlinestore.model.OrderStatus; // Добавляем импорт
 import com.example.onlinestore.repository.PaymentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.math.BigDecimal;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
-@Transactional
 public class PaymentService {
 
     @Value("${yookassa.shop-id:test_shop_id}")
@@ -34,64 +41,91 @@ public class PaymentService {
     @Value("${app.base-url:http://localhost:8080}")
     private String baseUrl;
 
-    private final WebClient webClient;
+    @Autowired
+    @Qualifier("yooKassaWebClient")
+    private WebClient webClient;
 
     @Autowired
     private PaymentRepository paymentRepository;
 
     @Autowired
-    private OrderService orderService;
+    private OrderStatusRelay orderStatusRelay;
+
+    private final TransactionTemplate transactionTemplate;
 
-    public PaymentService() {
-        this.webClient = WebClient.builder()
-                .baseUrl("https://api.yookassa.ru/v3")
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .build();
+    public PaymentService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    public Payment createPayment(Order order) {
-        try {
-            // Проверяем, не существует ли уже платеж для этого заказа
-            if (paymentRepository.existsByOrderId(order.getId())) {
-                throw new IllegalStateException("Платеж для этого заказа уже существует");
-            }
+    // Создание платежа без удержания соединения с БД на время запроса к ЮKassa:
+    // проверка и сохранение - короткие отдельные обращения к БД,
+    // HTTP-запрос выполняется неблокирующим клиентом
+    public Mono<Payment> createPayment(Order order) {
+        return Mono.fromCallable(() -> paymentRepository.existsByOrderId(order.getId()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(exists -> {
+                    // Проверяем, не существует ли уже платеж для этого заказа
+                    if (exists) {
+                        return Mono.error(new IllegalStateException("Платеж для этого заказа уже существует"));
+                    }
+                    return requestPayment(order);
+                })
+                // Сохранение в БД - на пуле для блокирующих операций, а не на потоке Netty
+                .publishOn(Schedulers.boundedElastic())
+                .map(response -> savePayment(order, response))
+                .onErrorMap(e -> new RuntimeException("Ошибка создания платежа: " + e.getMessage(), e));
+    }
 
-            // Создаем запрос к ЮKassa
-            YooKassaPaymentRequest request = new YooKassaPaymentRequest(
-                    order.getTotalAmount(),
-                    "RUB",
-                    "Оплата заказа №" + order.getId(),
-                    baseUrl + "/payment/success",
-                    "redirect",
-                    order.getId()
-            );
-
-            // Вызываем API ЮKassa
-            YooKassaPaymentResponse response = webClient.post()
-                    .uri("/payments")
-                    .header(HttpHeaders.AUTHORIZATION, getAuthHeader())
-                    .header("Idempotence-Key", generateIdempotenceKey())
-                    .body(Mono.just(request), YooKassaPaymentRequest.class)
-                    .retrieve()
-                    .bodyToMono(YooKassaPaymentResponse.class)
-                    .block();
-
-            if (response == null) {
-                throw new RuntimeException("Не удалось создать платеж в ЮKassa");
-            }
+    private Mono<YooKassaPaymentResponse> requestPayment(Order order) {
+        // Создаем запрос к ЮKassa
+        YooKassaPaymentRequest request = new YooKassaPaymentRequest(
+                order.getTotalAmount(),
+                "RUB",
+                "Оплата заказа №" + order.getId(),
+                baseUrl + "/payment/success",
+                "redirect",
+                order.getId()
+        );
+
+        // Вызываем API ЮKassa
+        return webClient.post()
+                .uri("/payments")
+                .header(HttpHeaders.AUTHORIZATION, getAuthHeader())
+                .header("Idempotence-Key", generateIdempotenceKey())
+                .body(Mono.just(request), YooKassaPaymentRequest.class)
+                .retrieve()
+                .bodyToMono(YooKassaPaymentResponse.class)
+                .switchIfEmpty(Mono.error(new RuntimeException("Не удалось создать платеж в ЮKassa")));
+    }
 
-            // Сохраняем платеж в БД
-            Payment payment = new Payment(order, order.getTotalAmount(),
-                    "Оплата заказа №" + order.getId());
-            payment.setPaymentId(response.getId());
-            payment.setConfirmationUrl(response.getConfirmation().getConfirmationUrl());
-            payment.setStatus(PaymentStatus.PENDING);
+    private Payment savePayment(Order order, YooKassaPaymentResponse response) {
+        // Сохраняем платеж в БД
+        Payment payment = new Payment(order, order.getTotalAmount(),
+                "Оплата заказа №" + order.getId());
+        payment.setPaymentId(response.getId());
+        payment.setConfirmationUrl(response.getConfirmation().getConfirmationUrl());
+        payment.setStatus(PaymentStatus.PENDING);
 
-            return paymentRepository.save(payment);
+        return transactionTemplate.execute(status -> paymentRepository.save(payment));
+    }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Ошибка создания платежа: " + e.getMessage(), e);
-        }
+    // Текущий статус платежа по данным API ЮKassa (GET /payments/{id}).
+    // Пустой результат - ЮKassa такого платежа не знает
+    public Mono<PaymentStatus> fetchPaymentStatus(String paymentId) {
+        return webClient.get()
+                .uri("/payments/{id}", paymentId)
+                .header(HttpHeaders.AUTHORIZATION, getAuthHeader())
+                .retrieve()
+                .bodyToMono(YooKassaPaymentResponse.class)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty())
+                .onErrorResume(WebClientResponseException.BadRequest.class, e -> Mono.empty())
+                .flatMap(response -> {
+                    try {
+                        return Mono.just(PaymentStatus.fromString(response.getStatus()));
+                    } catch (IllegalArgumentException e) {
+                        return Mono.empty();
+                    }
+                });
     }
 
     public Payment getPaymentByOrderId(Long orderId) {
@@ -104,16 +138,48 @@ public class PaymentService {
                 .orElseThrow(() -> new IllegalArgumentException("Платеж не найден: " + paymentId));
     }
 
+    @Transactional
     public void updatePaymentStatus(String paymentId, PaymentStatus status) {
         Payment payment = getPaymentByPaymentId(paymentId);
         payment.setStatus(status);
         paymentRepository.save(payment);
 
-        // Обновляем статус заказа при успешной оплате
+        // Статус заказа при успешной оплате обновит OrderStatusRelay
         if (status == PaymentStatus.SUCCEEDED) {
-            Order order = payment.getOrder();
-            orderService.updateOrderStatus(order.getId(), OrderStatus.PROCESSING);
+            orderStatusRelay.append(payment.getOrder().getId(), OrderStatus.PROCESSING);
+        }
+    }
+
+    // Пачка статусов из вебхуков в одной транзакции, в порядке поступления.
+    // Повтор уже установленного статуса ничего не меняет.
+    // Возвращает paymentId, которых нет в БД
+    @Transactional
+    public Set<String> applyStatusUpdates(List<Map.Entry<String, PaymentStatus>> updates) {
+        Set<String> paymentIds = new HashSet<>();
+        for (Map.Entry<String, PaymentStatus> update : updates) {
+            paymentIds.add(update.getKey());
+        }
+        Map<String, Payment> payments = new HashMap<>();
+        for (Payment payment : paymentRepository.findByPaymentIdIn(paymentIds)) {
+            payments.put(payment.getPaymentId(), payment);
+        }
+
+        Set<String> unknown = new HashSet<>();
+        for (Map.Entry<String, PaymentStatus> update : updates) {
+            Payment payment = payments.get(update.getKey());
+            if (payment == null) {
+                unknown.add(update.getKey());
+                continue;
+            }
+            if (payment.getStatus() == update.getValue()) {
+                continue;
+            }
+            payment.setStatus(update.getValue());
+            if (update.getValue() == PaymentStatus.SUCCEEDED) {
+                orderStatusRelay.append(payment.getOrder().getId(), OrderStatus.PROCESSING);
+            }
         }
+        return unknown;
     }
 
     public boolean isPaymentCompleted(Long orderId) {
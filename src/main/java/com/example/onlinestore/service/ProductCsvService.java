@@ -0,0 +1,450 @@
+package com.example.onlinestore.service;
+
+import com.example.onlinestore.csv.Csv;
+import com.example.onlinestore.csv.CsvReader;
+import com.example.onlinestore.dto.ProductCsvRow;
+import com.example.onlinestore.image.ProductImageService;
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductBulkRepository;
+import com.example.onlinestore.search.ProductSearchIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Выгрузка каталога в CSV и загрузка из CSV. Файл читается потоково и
+// записывается пачками; в памяти только текущая пачка строк
+@Service
+public class ProductCsvService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductCsvService.class);
+
+    public static final String HEADER = "id,name,description,price,image_url,stock_quantity";
+
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int RECENT_JOBS = 20;
+    private static final int MAX_HEADER_CHARS = 64 * 1024;
+
+    @Autowired
+    private ProductBulkRepository bulkRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductImageService imageService;
+
+    @Value("${app.products.import.batch-size:500}")
+    private int batchSize;
+
+    private final TransactionTemplate transactionTemplate;
+    private ExecutorService executor;
+
+    // Последние загрузки для страницы прогресса
+    private final Map<String, ProductImportJob> jobs = new LinkedHashMap<>(32, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ProductImportJob> eldest) {
+            return size() > RECENT_JOBS;
+        }
+    };
+
+    public ProductCsvService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Загрузки выполняются по одной: параллельные пачки одного каталога
+    // только мешали бы друг другу блокировками строк
+    @PostConstruct
+    public void open() {
+        executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "product-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // Строки пишутся в ответ по мере чтения из БД
+    public long export(PrintWriter writer) {
+        writer.println(HEADER);
+        return bulkRepository.forEach(row -> {
+            writer.print(row.id());
+            writer.print(',');
+            writer.print(Csv.escape(row.name()));
+            writer.print(',');
+            writer.print(Csv.escape(row.description()));
+            writer.print(',');
+            writer.print(row.price() != null ? row.price().toPlainString() : "");
+            writer.print(',');
+            writer.print(Csv.escape(row.imageUrl()));
+            writer.print(',');
+            writer.println(row.stockQuantity());
+        });
+    }
+
+    // Файл сохраняется во временный, загрузка идет в фоне
+    public ProductImportJob startImport(MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Выберите CSV-файл");
+        }
+        Path temp = Files.createTempFile("product-import", ".csv");
+        try {
+            file.transferTo(temp);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        ProductImportJob job = new ProductImportJob(UUID.randomUUID().toString().substring(0, 8),
+                file.getOriginalFilename(), file.getSize());
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+        }
+        executor.submit(() -> run(job, temp));
+        return job;
+    }
+
+    public ProductImportJob getJob(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    // Сначала новые
+    public List<ProductImportJob> getRecentJobs() {
+        List<ProductImportJob> recent;
+        synchronized (jobs) {
+            recent = new ArrayList<>(jobs.values());
+        }
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    public void writeErrors(ProductImportJob job, PrintWriter writer) {
+        writer.println("line,error");
+        for (ProductImportJob.RowError error : job.getErrors()) {
+            writer.print(error.line());
+            writer.print(',');
+            writer.println(Csv.escape(error.message()));
+        }
+    }
+
+    private void run(ProductImportJob job, Path file) {
+        job.start();
+        long started = System.currentTimeMillis();
+        String failure = null;
+        try (CountingInputStream counter = new CountingInputStream(Files.newInputStream(file));
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(counter, StandardCharsets.UTF_8), 64 * 1024)) {
+            importRows(job, reader, counter);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Product import {} failed: {}", job.getId(), e.getMessage(), e);
+            failure = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Error deleting import file {}: {}", file, e.getMessage());
+            }
+        }
+
+        // Записанные пачки остаются и при ошибке. Новые товары получили id в БД -
+        // поисковый индекс проще перестроить пачками, чем дополнять построчно
+        if (job.getInserted() + job.getUpdated() > 0) {
+            searchIndex.rebuild();
+        }
+        if (failure != null) {
+            job.fail(failure);
+            return;
+        }
+        job.finish();
+        log.info("Product import {} finished: rows={} inserted={} updated={} errors={} in {} ms",
+                job.getId(), job.getRowsRead(), job.getInserted(), job.getUpdated(),
+                job.getErrorCount(), System.currentTimeMillis() - started);
+    }
+
+    private void importRows(ProductImportJob job, BufferedReader reader, CountingInputStream counter)
+            throws IOException {
+        CsvReader csv = new CsvReader(reader, detectDelimiter(reader));
+        List<String> header = csv.next();
+        if (header == null) {
+            throw new IllegalArgumentException("Файл пуст");
+        }
+        Map<String, Integer> columns = columns(header);
+        for (String required : List.of("name", "description", "price")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("В файле нет столбца " + required);
+            }
+        }
+
+        List<ProductCsvRow> batch = new ArrayList<>(batchSize);
+        long rows = 0;
+        List<String> fields;
+        while ((fields = csv.next()) != null) {
+            rows++;
+            try {
+                batch.add(parse(csv.getRecordLine(), fields, columns));
+            } catch (IllegalArgumentException e) {
+                job.error(csv.getRecordLine(), e.getMessage());
+            }
+            if (batch.size() == batchSize) {
+                write(job, batch);
+                batch.clear();
+                job.progress(counter.count, rows);
+            }
+        }
+        write(job, batch);
+        job.progress(counter.count, rows);
+    }
+
+    // Пачка пишется в одной транзакции; если она не прошла целиком,
+    // строки повторяются по одной, чтобы ошибка попала в отчет нужной строки
+    private void write(ProductImportJob job, List<ProductCsvRow> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Applied> committed = new ArrayList<>();
+        try {
+            committed.add(transactionTemplate.execute(status -> apply(batch)));
+        } catch (DataAccessException e) {
+            log.debug("Import batch failed, retrying row by row: {}", e.getMessage());
+            for (ProductCsvRow row : batch) {
+                try {
+                    committed.add(transactionTemplate.execute(status -> apply(List.of(row))));
+                } catch (DataAccessException rowError) {
+                    job.error(row.line(), "Ошибка записи: " + rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+
+        // Счетчики и ошибки учитываются только после коммита: если не прошел
+        // коммит пачки, ее строки повторяются по одной и не должны посчитаться дважды
+        Set<Long> updatedIds = new HashSet<>();
+        for (Applied applied : committed) {
+            job.imported(applied.inserted().size(), applied.updated().size());
+            for (ProductCsvRow row : applied.missing()) {
+                job.error(row.line(), "Товар с ID " + row.id() + " не найден");
+            }
+            for (Product product : applied.updated()) {
+                updatedIds.add(product.getId());
+            }
+        }
+        productService.evictImported(updatedIds);
+
+        // Внешние изображения новых и обновленных товаров скачиваются так же, как из формы админки
+        for (Applied applied : committed) {
+            applied.inserted().forEach(imageService::importIfRemote);
+            applied.updated().forEach(imageService::importIfRemote);
+        }
+    }
+
+    private Applied apply(List<ProductCsvRow> rows) {
+        List<ProductCsvRow> updates = new ArrayList<>();
+        List<ProductCsvRow> inserts = new ArrayList<>();
+        for (ProductCsvRow row : rows) {
+            (row.id() != null ? updates : inserts).add(row);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int[] counts = bulkRepository.update(updates, now);
+        List<Long> ids = bulkRepository.insert(inserts, now);
+
+        List<Product> inserted = new ArrayList<>(inserts.size());
+        for (int i = 0; i < ids.size(); i++) {
+            inserted.add(product(inserts.get(i), ids.get(i)));
+        }
+        List<Product> updated = new ArrayList<>(updates.size());
+        List<ProductCsvRow> missing = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                missing.add(updates.get(i));
+            } else {
+                updated.add(product(updates.get(i), updates.get(i).id()));
+            }
+        }
+        return new Applied(inserted, updated, missing);
+    }
+
+    private static Product product(ProductCsvRow row, Long id) {
+        Product product = new Product(row.name(), row.description(), row.price(),
+                row.imageUrl(), row.stockQuantity());
+        product.setId(id);
+        return product;
+    }
+
+    private static ProductCsvRow parse(long line, List<String> fields, Map<String, Integer> columns) {
+        String idValue = field(fields, columns, "id");
+        Long id = null;
+        if (idValue != null) {
+            try {
+                id = Long.valueOf(idValue);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Некорректный ID: " + idValue);
+            }
+            if (id <= 0) {
+                throw new IllegalArgumentException("Некорректный ID: " + idValue);
+            }
+        }
+
+        String name = field(fields, columns, "name");
+        if (name == null) {
+            throw new IllegalArgumentException("Название товара обязательно");
+        }
+        if (name.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Название длиннее " + MAX_NAME_LENGTH + " символов");
+        }
+        String description = field(fields, columns, "description");
+        if (description == null) {
+            throw new IllegalArgumentException("Описание товара обязательно");
+        }
+
+        String priceValue = field(fields, columns, "price");
+        if (priceValue == null) {
+            throw new IllegalArgumentException("Цена товара обязательна");
+        }
+        BigDecimal price;
+        try {
+            // Excel в русской локали пишет дробную часть через запятую
+            price = new BigDecimal(priceValue.replace(',', '.').replace(" ", "").replace("\u00A0", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректная цена: " + priceValue);
+        }
+        if (price.signum() < 0) {
+            throw new IllegalArgumentException("Цена не может быть отрицательной");
+        }
+
+        String stockValue = field(fields, columns, "stock_quantity");
+        int stock = 0;
+        if (stockValue != null) {
+            try {
+                stock = Integer.parseInt(stockValue);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Некорректное количество: " + stockValue);
+            }
+            if (stock < 0) {
+                throw new IllegalArgumentException("Количество не может быть отрицательным");
+            }
+        }
+
+        return new ProductCsvRow(line, id, name, description, price,
+                field(fields, columns, "image_url"), stock);
+    }
+
+    // Пустое значение - null
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Map<String, Integer> columns(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        return columns;
+    }
+
+    // Excel в русской локали сохраняет CSV с точкой с запятой
+    private static char detectDelimiter(BufferedReader reader) throws IOException {
+        reader.mark(MAX_HEADER_CHARS);
+        char[] buffer = new char[MAX_HEADER_CHARS];
+        int length = read(reader, buffer);
+        reader.reset();
+
+        int commas = 0;
+        int semicolons = 0;
+        for (int i = 0; i < length && buffer[i] != '\n' && buffer[i] != '\r'; i++) {
+            if (buffer[i] == ',') {
+                commas++;
+            } else if (buffer[i] == ';') {
+                semicolons++;
+            }
+        }
+        return semicolons > commas ? ';' : ',';
+    }
+
+    private static int read(Reader reader, char[] buffer) throws IOException {
+        int total = 0;
+        int n;
+        while (total < buffer.length && (n = reader.read(buffer, total, buffer.length - total)) > 0) {
+            total += n;
+        }
+        return total;
+    }
+
+    // Результат записи пачки: новые и обновленные товары, строки с несуществующим id
+    private record Applied(List<Product> inserted, List<Product> updated, List<ProductCsvRow> missing) {
+    }
+
+    // Число прочитанных байт файла - для процента выполнения
+    private static class CountingInputStream extends FilterInputStream {
+
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.onlinestore.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Состояние загрузки каталога из CSV. Обновляется потоком загрузки,
+// читается страницей прогресса
+public class ProductImportJob {
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    public record RowError(long line, String message) {}
+
+    // Ошибки сверх лимита только считаются
+    static final int MAX_ERRORS = 1000;
+
+    private final String id;
+    private final String fileName;
+    private final long fileSize;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final List<RowError> errors = new ArrayList<>();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime finishedAt;
+    private volatile String failure;
+    private volatile long bytesRead;
+    private volatile long rowsRead;
+    private volatile long inserted;
+    private volatile long updated;
+    private volatile long errorCount;
+
+    ProductImportJob(String id, String fileName, long fileSize) {
+        this.id = id;
+        this.fileName = fileName;
+        this.fileSize = fileSize;
+    }
+
+    void start() {
+        status = Status.RUNNING;
+    }
+
+    void finish() {
+        finishedAt = LocalDateTime.now();
+        status = Status.DONE;
+    }
+
+    void fail(String message) {
+        failure = message;
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+
+    void progress(long bytesRead, long rowsRead) {
+        this.bytesRead = bytesRead;
+        this.rowsRead = rowsRead;
+    }
+
+    void imported(long inserted, long updated) {
+        this.inserted += inserted;
+        this.updated += updated;
+    }
+
+    synchronized void error(long line, String message) {
+        errorCount++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    public synchronized List<RowError> getErrors() {
+        return List.copyOf(errors);
+    }
+
+    public boolean isFinished() {
+        return status == Status.DONE || status == Status.FAILED;
+    }
+
+    public int getProgressPercent() {
+        if (status == Status.DONE) {
+            return 100;
+        }
+        return fileSize > 0 ? (int) Math.min(99, bytesRead * 100 / fileSize) : 0;
+    }
+
+    // Геттеры
+    public String getId() { return id; }
+    public String getFileName() { return fileName; }
+    public long getFileSize() { return fileSize; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public Status getStatus() { return status; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public String getFailure() { return failure; }
+    public long getRowsRead() { return rowsRead; }
+    public long getInserted() { return inserted; }
+    public long getUpdated() { return updated; }
+    public long getErrorCount() { return errorCount; }
+}
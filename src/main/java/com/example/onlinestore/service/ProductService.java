@@ -1,36 +1,295 @@
 package com.example.onlinestore.service;
 
+import com.example.onlinestore.cache.LoadingCache;
+import com.example.onlinestore.dto.ProductPage;
 import com.example.onlinestore.model.Product;
 import com.example.onlinestore.repository.ProductRepository;
+import com.example.onlinestore.search.ProductSearchIndex;
+import com.example.onlinestore.view.ProductFragmentCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiFunction;
 
 @Service
 public class ProductService {
 
+    public static final int DEFAULT_PAGE_SIZE = 12;
+    public static final int MAX_PAGE_SIZE = 48;
+
+    private static final String ALL_PRODUCTS = "all";
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductFragmentCache fragmentCache;
+
+    private final LoadingCache<Long, Optional<Product>> productCache;
+    // Полный список товаров (админка) и число товаров - по одной записи
+    private final LoadingCache<String, List<Product>> listCache;
+    private final LoadingCache<String, Long> countCache;
+    // id товаров первой страницы каталога; ключ - размер страницы
+    private final LoadingCache<Integer, List<Long>> firstPageCache;
+
+    // Версия каталога для ETag главной и поиска берется из БД (число товаров,
+    // max id, max updated_at), поэтому одинакова на всех узлах. Свои изменения узел
+    // видит сразу, изменения с других узлов - не позже чем через version-ttl-ms
+    private final LoadingCache<String, CatalogState> catalogStateCache;
+
+    public ProductService(@Value("${app.catalog.cache.max-size:10000}") int maxSize,
+                          @Value("${app.catalog.cache.ttl-seconds:60}") long ttlSeconds,
+                          @Value("${app.catalog.version-ttl-ms:1000}") long versionTtlMillis) {
+        this.catalogStateCache = new LoadingCache<>(1, versionTtlMillis);
+        this.productCache = new LoadingCache<>(maxSize, ttlSeconds * 1000);
+        this.listCache = new LoadingCache<>(1, ttlSeconds * 1000);
+        this.countCache = new LoadingCache<>(1, ttlSeconds * 1000);
+        this.firstPageCache = new LoadingCache<>(MAX_PAGE_SIZE, ttlSeconds * 1000);
+    }
+
     public List<Product> getAllProducts() {
-        return productRepository.findAll();
+        return listCache.get(ALL_PRODUCTS, key -> List.copyOf(productRepository.findAll())).stream()
+                .map(Product::copy)
+                .toList();
     }
 
-    public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+    public long countProducts() {
+        return countCache.get(ALL_PRODUCTS, key -> productRepository.count());
     }
 
-    public List<Product> searchProducts(String keyword) {
-        return productRepository.findByNameContainingIgnoreCase(keyword);
+    // Страница каталога: after - id последнего товара предыдущей страницы,
+    // before - id первого товара следующей страницы.
+    // Кэшируются только id первой страницы: курсоры приходят из запроса, и кэш
+    // по ним заполнялся бы произвольными ключами. Остальные страницы - один
+    // запрос по первичному ключу
+    public ProductPage getProductPage(Long after, Long before, int size) {
+        int pageSize = clampPageSize(size);
+        if (after == null && before == null) {
+            List<Long> ids = firstPageCache.get(pageSize,
+                    s -> List.copyOf(productRepository.findIdsByIdGreaterThan(0L, PageRequest.of(0, s + 1))));
+            boolean hasNext = ids.size() > pageSize;
+            return new ProductPage(resolve(hasNext ? ids.subList(0, pageSize) : ids), pageSize, hasNext, false);
+        }
+        return page(after, before, pageSize,
+                productRepository::findByIdGreaterThanOrderByIdAsc,
+                productRepository::findByIdLessThanOrderByIdDesc);
+    }
+
+    // Поиск по индексу в памяти; пока индекс строится при старте - запрос в БД.
+    // Результаты упорядочены по релевантности, курсоры - id крайних товаров страницы
+    public ProductPage searchProductPage(String keyword, Long after, Long before, int size) {
+        int pageSize = clampPageSize(size);
+        if (searchIndex.isReady()) {
+            ProductSearchIndex.RankedPage ranked = searchIndex.search(keyword, after, before, pageSize);
+            if (ranked.cursorLost()) {
+                return ProductPage.cursorLost(pageSize);
+            }
+            return new ProductPage(resolve(ranked.ids()), pageSize, ranked.hasNext(), ranked.hasPrevious());
+        }
+        return page(after, before, pageSize,
+                (id, limit) -> productRepository.findByNameContainingIgnoreCaseAndIdGreaterThanOrderByIdAsc(keyword, id, limit),
+                (id, limit) -> productRepository.findByNameContainingIgnoreCaseAndIdLessThanOrderByIdDesc(keyword, id, limit));
+    }
+
+    public Optional<Product> getProductById(Long id) {
+        Optional<Product> product = productCache.get(id, productRepository::findById);
+        if (product.isEmpty()) {
+            // Отсутствующие id не кэшируются: их перебор вытеснял бы товары
+            productCache.invalidate(id);
+        }
+        return product.map(Product::copy);
     }
 
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        // Товар из формы админки приходит без версии - берем текущую из БД
+        long version = product.getId() == null ? 0
+                : productRepository.findVersionById(product.getId()).orElse(0L);
+        product.setVersion(version + 1);
+        product.setUpdatedAt(LocalDateTime.now());
+        Product saved = productRepository.save(product);
+        searchIndex.index(saved);
+        evict(saved.getId());
+        inventoryService.refresh(saved.getId());
+        return saved;
+    }
+
+    // Замена внешнего изображения локальной копией, если его не поменяли, пока шла загрузка
+    public boolean replaceImageUrl(Long id, String expectedUrl, String newUrl) {
+        if (productRepository.replaceImageUrl(id, expectedUrl, newUrl, LocalDateTime.now()) == 0) {
+            return false;
+        }
+        evict(id);
+        return true;
     }
 
     public void deleteProduct(Long id) {
         productRepository.deleteById(id);
+        searchIndex.remove(id);
+        evict(id);
+        inventoryService.evict(id);
+    }
+
+    // Остатки изменились в обход saveProduct (оформление или отмена заказа).
+    // Состав каталога прежний: первая страница и число товаров остаются в кэше
+    public void evictAfterCommit(Collection<Long> ids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictStock(ids);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictStock(ids);
+            }
+        });
+    }
+
+    // Пачка товаров изменена массовой загрузкой: кэш каталога сбрасывается один раз на пачку
+    public void evictImported(Collection<Long> updatedIds) {
+        for (Long id : updatedIds) {
+            productCache.invalidate(id);
+            fragmentCache.invalidate(id);
+            inventoryService.refresh(id);
+        }
+        invalidateCatalog();
+    }
+
+    public String getCatalogVersion() {
+        return catalogState().version;
+    }
+
+    // -1, если ни у одного товара нет updated_at
+    public long getCatalogLastModified() {
+        return catalogState().lastModified;
+    }
+
+    public Map<String, Map<String, Long>> getCacheStats() {
+        Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+        getCaches().forEach((name, cache) -> stats.put(name, cache.getStats()));
+        return stats;
+    }
+
+    public Map<String, LoadingCache<?, ?>> getCaches() {
+        Map<String, LoadingCache<?, ?>> caches = new LinkedHashMap<>();
+        caches.put("products", productCache);
+        caches.put("pages", firstPageCache);
+        caches.put("list", listCache);
+        caches.put("count", countCache);
+        return caches;
+    }
+
+    private int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    // Запрашиваем на одну строку больше, чтобы узнать, есть ли следующая страница
+    private ProductPage page(Long after, Long before, int pageSize,
+                             BiFunction<Long, Pageable, List<Product>> forward,
+                             BiFunction<Long, Pageable, List<Product>> backward) {
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        if (before != null) {
+            List<Product> rows = new ArrayList<>(backward.apply(before, limit));
+            boolean hasPrevious = rows.size() > pageSize;
+            if (hasPrevious) {
+                rows.remove(pageSize);
+            }
+            Collections.reverse(rows);
+            return new ProductPage(List.copyOf(rows), pageSize, true, hasPrevious);
+        }
+
+        List<Product> rows = new ArrayList<>(forward.apply(after != null ? after : 0L, limit));
+        boolean hasNext = rows.size() > pageSize;
+        if (hasNext) {
+            rows.remove(pageSize);
+        }
+        return new ProductPage(List.copyOf(rows), pageSize, hasNext, after != null);
+    }
+
+    // Товары по id через кэш, с сохранением порядка; промахи загружаются одним запросом
+    private List<Product> resolve(List<Long> ids) {
+        Map<Long, Product> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            Optional<Product> cached = productCache.getIfPresent(id);
+            if (cached == null) {
+                missing.add(id);
+            } else {
+                cached.ifPresent(product -> found.put(id, product));
+            }
+        }
+        if (!missing.isEmpty()) {
+            // Товар, измененный во время чтения, в кэш не попадет: saveProduct его инвалидирует
+            long stamp = productCache.invalidationStamp();
+            for (Product product : productRepository.findAllById(missing)) {
+                productCache.putIfAbsent(product.getId(), Optional.of(product), stamp);
+                found.put(product.getId(), product);
+            }
+        }
+
+        List<Product> products = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = found.get(id);
+            if (product != null) {
+                products.add(product.copy());
+            }
+        }
+        return products;
+    }
+
+    private void evict(Long id) {
+        productCache.invalidate(id);
+        invalidateCatalog();
+        fragmentCache.invalidate(id);
+    }
+
+    private void evictStock(Collection<Long> ids) {
+        for (Long id : ids) {
+            productCache.invalidate(id);
+            fragmentCache.invalidate(id);
+        }
+        // В списке админки показаны остатки
+        listCache.invalidateAll();
+        catalogStateCache.invalidateAll();
+    }
+
+    private void invalidateCatalog() {
+        listCache.invalidateAll();
+        countCache.invalidateAll();
+        firstPageCache.invalidateAll();
+        catalogStateCache.invalidateAll();
+    }
+
+    private CatalogState catalogState() {
+        return catalogStateCache.get(ALL_PRODUCTS, key -> {
+            Object[] row = productRepository.findCatalogState().get(0);
+            LocalDateTime updatedAt = (LocalDateTime) row[2];
+            long lastModified = updatedAt == null ? -1
+                    : updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            return new CatalogState(row[0] + "." + row[1] + "." + lastModified, lastModified);
+        });
+    }
+
+    private record CatalogState(String version, long lastModified) {
     }
 }
\ No newline at end of file
@@ -1,64 +1,131 @@
 package com.example.onlinestore.service;
 
+import com.example.onlinestore.cart.Cart;
+import com.example.onlinestore.cart.CartIdResolver;
+import com.example.onlinestore.cart.CartLine;
+import com.example.onlinestore.cart.CartStore;
+import com.example.onlinestore.cart.CookieCartStore;
 import com.example.onlinestore.model.CartItem;
 import com.example.onlinestore.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.context.annotation.SessionScope;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+// Корзина хранит только id товара, количество и цену на момент добавления.
+// Корзины лежат в CartStore по id из cookie, а не в HTTP-сессии.
+// Методы без cartId работают с корзиной текущего запроса
 @Service
-@SessionScope
 public class ShoppingCartService {
-    private List<CartItem> cartItems = new ArrayList<>();
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private CartIdResolver cartIdResolver;
+
+    @Autowired
+    private ProductService productService;
+
+    public String currentCartId() {
+        // Корзине в cookie отдельный id не нужен
+        return cartStore.isRequestBound() ? CookieCartStore.COOKIE_NAME : cartIdResolver.getOrCreate();
+    }
 
     public void addProduct(Product product, Integer quantity) {
-        Optional<CartItem> existingItem = cartItems.stream()
-                .filter(item -> item.getProduct().getId().equals(product.getId()))
-                .findFirst();
-
-        if (existingItem.isPresent()) {
-            existingItem.get().setQuantity(existingItem.get().getQuantity() + quantity);
-        } else {
-            cartItems.add(new CartItem(product, quantity));
-        }
+        addProduct(currentCartId(), product, quantity);
+    }
+
+    public void addProduct(String cartId, Product product, Integer quantity) {
+        cartStore.update(cartId, cart -> cart.add(product.getId(), quantity, product.getPrice()));
     }
 
     public void removeProduct(Long productId) {
-        cartItems.removeIf(item -> item.getProduct().getId().equals(productId));
+        String cartId = findCartId();
+        if (cartId != null) {
+            removeProduct(cartId, productId);
+        }
+    }
+
+    public void removeProduct(String cartId, Long productId) {
+        cartStore.update(cartId, cart -> cart.remove(productId));
     }
 
     public void updateQuantity(Long productId, Integer quantity) {
-        cartItems.stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst()
-                .ifPresent(item -> item.setQuantity(quantity));
+        String cartId = findCartId();
+        if (cartId != null) {
+            cartStore.update(cartId, cart -> cart.update(productId, quantity));
+        }
     }
 
-    public List<CartItem> getCartItems() {
-        return new ArrayList<>(cartItems);
+    // Позиции для оформления заказа. Если хранилище не сохраняет цены
+    // (корзина в cookie), цены берутся из каталога на момент оформления
+    public List<CartLine> getLines(String cartId) {
+        List<CartLine> lines = snapshot(cartId).lines();
+        if (cartStore.storesPrices()) {
+            return lines;
+        }
+        List<CartLine> priced = new ArrayList<>(lines.size());
+        for (CartLine line : lines) {
+            productService.getProductById(line.productId()).ifPresent(product ->
+                    priced.add(new CartLine(line.productId(), line.quantity(), product.getPrice())));
+        }
+        return priced;
     }
 
-    public BigDecimal getTotalPrice() {
-        return cartItems.stream()
-                .map(CartItem::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    // Позиции с товарами для страниц корзины и оформления заказа.
+    // Товары, удаленные из каталога, убираются из корзины
+    public List<CartItem> getCartItems() {
+        String cartId = findCartId();
+        List<CartItem> items = new ArrayList<>();
+        for (CartLine line : getLines(cartId)) {
+            Optional<Product> product = productService.getProductById(line.productId());
+            if (product.isPresent()) {
+                BigDecimal unitPrice = cartStore.storesPrices() ? line.unitPrice() : product.get().getPrice();
+                items.add(new CartItem(product.get(), line.quantity(), unitPrice));
+            } else {
+                removeProduct(cartId, line.productId());
+            }
+        }
+        return items;
     }
 
-    public void clearCart() {
-        cartItems.clear();
+    public BigDecimal getTotalPrice() {
+        if (cartStore.storesPrices()) {
+            return snapshot(findCartId()).getTotalPrice();
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartItem item : getCartItems()) {
+            total = total.add(item.getTotalPrice());
+        }
+        return total;
     }
 
     public int getTotalItems() {
-        return cartItems.stream()
-                .mapToInt(CartItem::getQuantity)
-                .sum();
+        return snapshot(findCartId()).getTotalItems();
     }
 
     public boolean isEmpty() {
-        return cartItems.isEmpty();
+        return isEmpty(findCartId());
+    }
+
+    public boolean isEmpty(String cartId) {
+        return snapshot(cartId).isEmpty();
+    }
+
+    public void clearCart(String cartId) {
+        cartStore.delete(cartId);
+    }
+
+    private String findCartId() {
+        return cartStore.isRequestBound() ? CookieCartStore.COOKIE_NAME : cartIdResolver.find();
+    }
+
+    private Cart snapshot(String cartId) {
+        Cart cart = cartId != null ? cartStore.find(cartId) : null;
+        return cart != null ? cart : new Cart();
     }
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+package com.example.onlinestore.view;
+
+import com.example.onlinestore.cache.LoadingCache;
+import com.example.onlinestore.image.ProductImageService;
+import com.example.onlinestore.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+import org.springframework.web.util.HtmlUtils;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+// Кэш отрисованных карточек товара (главная, поиск) и блока описания товара.
+// HTML зависит только от товара и общий для всех посетителей: в кэше он лежит
+// с меткой вместо CSRF-токена, токен текущего запроса подставляется при выдаче.
+// Запись действительна, пока не изменились версия товара и показанный остаток
+@Component
+public class ProductFragmentCache {
+
+    static final String CSRF_MARKER = "<!--csrf-->";
+
+    private static final String CARD_TEMPLATE = "fragments/product-card";
+    private static final String DETAILS_TEMPLATE = "fragments/product-details";
+    private static final int LOW_STOCK = 5;
+
+    @Autowired
+    private ITemplateEngine templateEngine;
+
+    @Autowired
+    private ResourceUrlProvider resourceUrlProvider;
+
+    // Выключен вне prod-профиля, чтобы правки шаблонов были видны сразу
+    @Value("${app.view.fragment-cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${server.servlet.context-path:}")
+    private String contextPath;
+
+    private final LoadingCache<String, Rendered> fragments;
+
+    public ProductFragmentCache(@Value("${app.view.fragment-cache.max-size:20000}") int maxSize,
+                                @Value("${app.view.fragment-cache.ttl-seconds:3600}") long ttlSeconds) {
+        this.fragments = new LoadingCache<>(maxSize, ttlSeconds * 1000);
+    }
+
+    // Карточка показывает только "нет / заканчивается / в наличии"
+    public String card(Product product, CsrfToken csrf) {
+        String stamp = product.getVersion() + ":" + stockLevel(product);
+        return withCsrf(render("card:", CARD_TEMPLATE, product, stamp), csrf);
+    }
+
+    // На странице товара виден точный остаток
+    public String details(Product product, CsrfToken csrf) {
+        String stamp = product.getVersion() + ":" + product.getStockQuantity();
+        return withCsrf(render("details:", DETAILS_TEMPLATE, product, stamp), csrf);
+    }
+
+    public void invalidate(Long productId) {
+        fragments.invalidate("card:" + productId);
+        fragments.invalidate("details:" + productId);
+    }
+
+    private String render(String kind, String template, Product product, String stamp) {
+        if (!enabled) {
+            return process(template, product);
+        }
+        String key = kind + product.getId();
+        Rendered rendered = fragments.get(key, k -> new Rendered(stamp, process(template, product)));
+        if (!rendered.stamp().equals(stamp)) {
+            fragments.invalidate(key);
+            rendered = fragments.get(key, k -> new Rendered(stamp, process(template, product)));
+        }
+        return rendered.html();
+    }
+
+    private String process(String template, Product product) {
+        Context context = new Context(LocaleContextHolder.getLocale());
+        context.setVariable("product", product);
+        context.setVariable("contextPath", contextPath);
+        context.setVariable("imageUrl", local(ProductImageService.imageUrl(product.getImageUrl())));
+        context.setVariable("thumbnailUrl", local(ProductImageService.thumbnailUrl(product.getImageUrl())));
+        return templateEngine.process(template, context);
+    }
+
+    // Локальная статика (заглушка) - по URL с хэшем содержимого, как @{...} в шаблонах
+    private String local(String url) {
+        if (!url.startsWith("/")) {
+            return url;
+        }
+        String versioned = url.startsWith(ProductImageService.URL_PREFIX) ? null
+                : resourceUrlProvider.getForLookupPath(url);
+        return contextPath + (versioned != null ? versioned : url);
+    }
+
+    private static String withCsrf(String html, CsrfToken csrf) {
+        if (csrf == null) {
+            return html.replace(CSRF_MARKER, "");
+        }
+        return html.replace(CSRF_MARKER, "<input type=\"hidden\" name=\""
+                + HtmlUtils.htmlEscape(csrf.getParameterName()) + "\" value=\""
+                + HtmlUtils.htmlEscape(csrf.getToken()) + "\"/>");
+    }
+
+    private static int stockLevel(Product product) {
+        int stock = product.getStockQuantity() == null ? 0 : product.getStockQuantity();
+        return stock == 0 ? 0 : stock < LOW_STOCK ? 1 : 2;
+    }
+
+    private record Rendered(String stamp, String html) {}
+}
@@ -0,0 +1,15 @@
+package com.example.onlinestore.webhook;
+
+import com.example.onlinestore.model.PaymentStatus;
+
+// Уведомление ЮKassa о смене статуса платежа
+public record WebhookEvent(long sequence, String paymentId, PaymentStatus status, int attempts) {
+
+    public String dedupKey() {
+        return paymentId + ":" + status;
+    }
+
+    public WebhookEvent nextAttempt() {
+        return new WebhookEvent(sequence, paymentId, status, attempts + 1);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.onlinestore.webhook;
+
+import com.example.onlinestore.model.PaymentStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Журнал вебхуков на локальном диске (append-only).
+// Строки: "E|seq|paymentId|STATUS" - событие, "A|seq" - событие обработано.
+// fsync выполняется группами: поток, первым вошедший в sync, сбрасывает на диск
+// все записанные к этому моменту события, остальные просто дожидаются его.
+class WebhookJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookJournal.class);
+
+    private final Path path;
+    private final boolean fsync;
+    private final long compactThresholdBytes;
+    private FileChannel channel;
+
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+    private volatile long writtenSequence;
+    private long syncedSequence;
+    private long pendingEvents;
+
+    WebhookJournal(Path path, boolean fsync, long compactThresholdBytes) {
+        this.path = path;
+        this.fsync = fsync;
+        this.compactThresholdBytes = compactThresholdBytes;
+    }
+
+    // Открывает журнал и возвращает необработанные события прошлого запуска.
+    // Журнал заменяется файлом только с этими событиями: новый файл пишется рядом,
+    // сбрасывается на диск и атомарно переименовывается, так что при сбое
+    // на диске остается либо старый журнал, либо новый целиком
+    List<WebhookEvent> open() throws IOException {
+        Map<Long, WebhookEvent> pending = new LinkedHashMap<>();
+        if (Files.exists(path)) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\\|");
+                try {
+                    if (parts.length == 4 && parts[0].equals("E")) {
+                        long sequence = Long.parseLong(parts[1]);
+                        pending.put(sequence, new WebhookEvent(sequence, parts[2], PaymentStatus.valueOf(parts[3]), 0));
+                    } else if (parts.length == 2 && parts[0].equals("A")) {
+                        pending.remove(Long.parseLong(parts[1]));
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Недописанная строка при аварийной остановке
+                    log.warn("Skipping corrupted webhook journal line: {}", line);
+                }
+            }
+        } else if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        long maxSequence = 0;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (WebhookEvent event : pending.values()) {
+                writeLine(out, eventLine(event));
+                maxSequence = Math.max(maxSequence, event.sequence());
+            }
+            out.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+
+        channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        writtenSequence = maxSequence;
+        syncedSequence = maxSequence;
+        pendingEvents = pending.size();
+        return new ArrayList<>(pending.values());
+    }
+
+    long lastSequence() {
+        return writtenSequence;
+    }
+
+    // Записывает событие и возвращается после того, как оно сброшено на диск
+    void append(WebhookEvent event) throws IOException {
+        synchronized (writeLock) {
+            writeLine(eventLine(event));
+            pendingEvents++;
+            writtenSequence = Math.max(writtenSequence, event.sequence());
+        }
+        if (fsync) {
+            synchronized (syncLock) {
+                if (syncedSequence < event.sequence()) {
+                    long target = writtenSequence;
+                    channel.force(false);
+                    syncedSequence = target;
+                }
+            }
+        }
+    }
+
+    // Отметка об обработке пишется без fsync: при потере событие будет
+    // применено повторно, а применение идемпотентно
+    void markApplied(long sequence) throws IOException {
+        synchronized (writeLock) {
+            writeLine("A|" + sequence + "\n");
+            pendingEvents--;
+            if (pendingEvents == 0 && channel.size() > compactThresholdBytes) {
+                // Все события обработаны - журнал можно начать заново
+                channel.truncate(0);
+                channel.position(0);
+            }
+        }
+    }
+
+    void close() throws IOException {
+        synchronized (writeLock) {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+            }
+        }
+    }
+
+    private String eventLine(WebhookEvent event) {
+        return "E|" + event.sequence() + "|" + event.paymentId() + "|" + event.status().name() + "\n";
+    }
+
+    private void writeLine(String line) throws IOException {
+        writeLine(channel, line);
+    }
+
+    private static void writeLine(FileChannel target, String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    // Переименование попадает на диск только вместе с каталогом.
+    // Не все системы позволяют открыть каталог (Windows) - тогда полагаемся на ФС
+    private void syncDirectory() {
+        Path dir = path.toAbsolutePath().getParent();
+        if (dir == null) {
+            return;
+        }
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            log.debug("Directory fsync is not supported for {}: {}", dir, e.getMessage());
+        }
+    }
+}
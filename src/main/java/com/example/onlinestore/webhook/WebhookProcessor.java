@@ -0,0 +1,313 @@
+package com.example.onlinestore.webhook;
+
+import com.example.onlinestore.model.PaymentStatus;
+import com.example.onlinestore.service.PaymentService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Прием вебхуков ЮKassa: событие записывается в локальный журнал,
+// после чего запрос сразу получает ответ. Статусы применяются пулом потоков
+// пачками; все события одного платежа попадают в один поток, поэтому
+// порядок по платежу сохраняется. Перед применением статус каждого
+// платежа запрашивается у API ЮKassa: содержимому уведомления не доверяем.
+@Component
+public class WebhookProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookProcessor.class);
+
+    private static final int DEDUP_CAPACITY = 100_000;
+
+    // Сигнал остановки для потоков-обработчиков, в журнал не пишется
+    private static final WebhookEvent STOP = new WebhookEvent(-1, "", null, 0);
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Value("${app.webhook.journal-path:data/webhook-journal.log}")
+    private String journalPath;
+
+    @Value("${app.webhook.fsync:true}")
+    private boolean fsync;
+
+    @Value("${app.webhook.workers:4}")
+    private int workerCount;
+
+    @Value("${app.webhook.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.webhook.journal-compact-bytes:1048576}")
+    private long compactThresholdBytes;
+
+    // Платеж мог еще не сохраниться: ЮKassa присылает уведомление
+    // раньше, чем createPayment записывает ответ в БД
+    @Value("${app.webhook.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.webhook.retry-delay-ms:2000}")
+    private long retryDelayMs;
+
+    // Одновременные запросы статуса к API ЮKassa из одного потока
+    @Value("${app.webhook.verify-concurrency:8}")
+    private int verifyConcurrency;
+
+    private WebhookJournal journal;
+    private List<BlockingQueue<WebhookEvent>> partitions;
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean running;
+
+    // Недавно принятые события (paymentId:status) для отсева повторов
+    private final Map<String, Boolean> recentKeys = new LinkedHashMap<>(1024, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > DEDUP_CAPACITY;
+        }
+    };
+
+    @PostConstruct
+    public void open() throws IOException {
+        journal = new WebhookJournal(Path.of(journalPath), fsync, compactThresholdBytes);
+        List<WebhookEvent> pending = journal.open();
+        sequence.set(journal.lastSequence());
+
+        partitions = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            partitions.add(new LinkedBlockingQueue<>());
+        }
+        // Необработанные события прошлого запуска - в исходном порядке
+        for (WebhookEvent event : pending) {
+            synchronized (recentKeys) {
+                recentKeys.put(event.dedupKey(), Boolean.TRUE);
+            }
+            partition(event.paymentId()).add(event);
+        }
+        if (!pending.isEmpty()) {
+            log.info("Webhook journal: replaying {} events", pending.size());
+        }
+    }
+
+    // Потоки запускаются после старта приложения, когда доступны сервисы и БД
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            BlockingQueue<WebhookEvent> queue = partitions.get(i);
+            Thread worker = new Thread(() -> work(queue), "webhook-worker-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    // Потоки будятся событием STOP, а не прерыванием: прерывание во время записи
+    // закрыло бы канал журнала. Прерываются только не успевшие завершиться
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        running = false;
+        for (BlockingQueue<WebhookEvent> queue : partitions) {
+            queue.add(STOP);
+        }
+        for (Thread worker : workers) {
+            worker.join(5000);
+        }
+        for (Thread worker : workers) {
+            if (worker.isAlive()) {
+                worker.interrupt();
+                worker.join(5000);
+            }
+        }
+        journal.close();
+    }
+
+    // Возвращает false, если такое уведомление уже было принято.
+    // Исключение - событие не удалось записать, ЮKassa должна повторить запрос
+    public boolean submit(String paymentId, PaymentStatus status) {
+        WebhookEvent event = new WebhookEvent(sequence.incrementAndGet(), paymentId, status, 0);
+        synchronized (recentKeys) {
+            if (recentKeys.putIfAbsent(event.dedupKey(), Boolean.TRUE) != null) {
+                return false;
+            }
+        }
+        try {
+            journal.append(event);
+        } catch (IOException e) {
+            synchronized (recentKeys) {
+                recentKeys.remove(event.dedupKey());
+            }
+            throw new UncheckedIOException("Не удалось записать уведомление в журнал", e);
+        }
+        partition(paymentId).add(event);
+        return true;
+    }
+
+    public int getQueuedCount() {
+        int total = 0;
+        for (BlockingQueue<WebhookEvent> queue : partitions) {
+            total += queue.size();
+        }
+        return total;
+    }
+
+    private BlockingQueue<WebhookEvent> partition(String paymentId) {
+        return partitions.get(Math.floorMod(paymentId.hashCode(), partitions.size()));
+    }
+
+    private void work(BlockingQueue<WebhookEvent> queue) {
+        // Отложенные события платежей, которых еще нет в БД, в порядке поступления
+        List<WebhookEvent> deferred = new ArrayList<>();
+        long retryAt = 0;
+
+        while (running) {
+            List<WebhookEvent> batch = new ArrayList<>();
+            if (!deferred.isEmpty() && System.currentTimeMillis() >= retryAt) {
+                batch.addAll(deferred);
+                deferred.clear();
+            }
+            try {
+                WebhookEvent first = queue.poll(batch.isEmpty() ? retryDelayMs : 0, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                batch.removeIf(event -> event == STOP);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            // Новые события платежа с отложенными событиями ждут вместе с ними
+            Set<String> waiting = new HashSet<>();
+            for (WebhookEvent event : deferred) {
+                waiting.add(event.paymentId());
+            }
+            List<WebhookEvent> ready = new ArrayList<>();
+            for (WebhookEvent event : batch) {
+                if (waiting.contains(event.paymentId())) {
+                    deferred.add(event);
+                } else {
+                    ready.add(event);
+                }
+            }
+            if (ready.isEmpty()) {
+                continue;
+            }
+
+            List<WebhookEvent> retry = apply(ready);
+            if (!retry.isEmpty()) {
+                if (deferred.isEmpty()) {
+                    retryAt = System.currentTimeMillis() + retryDelayMs;
+                }
+                deferred.addAll(0, retry);
+            }
+        }
+    }
+
+    // Проверяет статусы у ЮKassa, применяет пачку в одной транзакции
+    // и возвращает события для повтора
+    private List<WebhookEvent> apply(List<WebhookEvent> batch) {
+        Map<String, Optional<PaymentStatus>> verified = verify(batch);
+
+        List<WebhookEvent> retry = new ArrayList<>();
+        List<WebhookEvent> confirmed = new ArrayList<>(batch.size());
+        List<Map.Entry<String, PaymentStatus>> updates = new ArrayList<>(batch.size());
+        for (WebhookEvent event : batch) {
+            Optional<PaymentStatus> status = verified.get(event.paymentId());
+            if (status == null) {
+                // ЮKassa недоступна - повторим позже, попытка не засчитывается
+                retry.add(event);
+            } else if (status.isEmpty() || status.get() == PaymentStatus.PENDING) {
+                // Платежа нет в ЮKassa (поддельное уведомление) или менять нечего
+                log.warn("Webhook not confirmed by YooKassa: paymentId={} claimed={} actual={}",
+                        event.paymentId(), event.status(), status.orElse(null));
+                complete(event, true);
+            } else {
+                confirmed.add(event);
+                updates.add(Map.entry(event.paymentId(), status.get()));
+            }
+        }
+        if (confirmed.isEmpty()) {
+            return retry;
+        }
+
+        Set<String> unknown;
+        try {
+            unknown = paymentService.applyStatusUpdates(updates);
+        } catch (RuntimeException e) {
+            // БД недоступна - повторим всю пачку позже, попытка не засчитывается
+            log.warn("Error applying webhook batch of {}: {}", confirmed.size(), e.getMessage());
+            retry.addAll(confirmed);
+            return retry;
+        }
+
+        for (WebhookEvent event : confirmed) {
+            if (unknown.contains(event.paymentId()) && event.attempts() + 1 < maxAttempts) {
+                retry.add(event.nextAttempt());
+                continue;
+            }
+            if (unknown.contains(event.paymentId())) {
+                log.warn("Webhook for unknown payment dropped: paymentId={} status={}", event.paymentId(), event.status());
+            }
+            complete(event, unknown.contains(event.paymentId()));
+        }
+        return retry;
+    }
+
+    // Уведомление не подписано, поэтому статус берется из API ЮKassa, по одному запросу
+    // на платеж. Пустое значение - ЮKassa платежа не знает, нет ключа - запрос не удался
+    private Map<String, Optional<PaymentStatus>> verify(List<WebhookEvent> batch) {
+        Set<String> paymentIds = new LinkedHashSet<>();
+        for (WebhookEvent event : batch) {
+            paymentIds.add(event.paymentId());
+        }
+        Map<String, Optional<PaymentStatus>> verified = Flux.fromIterable(paymentIds)
+                .flatMap(paymentId -> paymentService.fetchPaymentStatus(paymentId)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .map(status -> Map.entry(paymentId, status))
+                        .onErrorResume(e -> {
+                            log.warn("Error fetching payment status: paymentId={}: {}", paymentId, e.getMessage());
+                            return Mono.empty();
+                        }), verifyConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+        return verified != null ? verified : Map.of();
+    }
+
+    // Событие обработано; forget - повтор того же уведомления от ЮKassa должен быть принят заново
+    private void complete(WebhookEvent event, boolean forget) {
+        if (forget) {
+            synchronized (recentKeys) {
+                recentKeys.remove(event.dedupKey());
+            }
+        }
+        try {
+            journal.markApplied(event.sequence());
+        } catch (IOException e) {
+            log.error("Error writing webhook journal", e);
+        }
+    }
+}
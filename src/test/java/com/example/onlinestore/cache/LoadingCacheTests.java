@@ -0,0 +1,156 @@
+package com.example.onlinestore.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadingCacheTests {
+
+    @Test
+    void concurrentMissesLoadOnce() throws Exception {
+        LoadingCache<String, String> cache = new LoadingCache<>(10, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> cache.get("key", key -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "value";
+        })));
+        loading.await(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 7; i++) {
+            results.add(executor.submit(() -> cache.get("key", key -> {
+                loads.incrementAndGet();
+                return "other";
+            })));
+        }
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("value", result.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.missCount());
+        // Остальные либо дождались загрузки, либо пришли после нее
+        assertEquals(7, cache.hitCount() + cache.waitCount());
+    }
+
+    @Test
+    void waitingForLoadIsNotCountedAsHit() throws Exception {
+        LoadingCache<String, String> cache = new LoadingCache<>(10, 60_000);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<String> loader = executor.submit(() -> cache.get("key", key -> {
+            loading.countDown();
+            await(release);
+            return "value";
+        }));
+        loading.await(5, TimeUnit.SECONDS);
+        Future<String> waiter = executor.submit(() -> cache.get("key", key -> "other"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.waitCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertEquals("value", loader.get(5, TimeUnit.SECONDS));
+        assertEquals("value", waiter.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(0, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(1, cache.waitCount());
+    }
+
+    @Test
+    void valueReadBeforeInvalidationIsNotPut() {
+        LoadingCache<String, String> cache = new LoadingCache<>(10, 60_000);
+        long stamp = cache.invalidationStamp();
+        // Значение прочитано из источника, затем запись инвалидирована после изменения
+        cache.invalidate("key");
+        cache.putIfAbsent("key", "stale", stamp);
+        assertNull(cache.getIfPresent("key"));
+
+        cache.putIfAbsent("key", "fresh", cache.invalidationStamp());
+        cache.putIfAbsent("key", "other", cache.invalidationStamp());
+        assertEquals("fresh", cache.getIfPresent("key"));
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        LoadingCache<String, String> cache = new LoadingCache<>(10, 60_000);
+
+        assertThrows(IllegalStateException.class, () -> cache.get("key", key -> {
+            throw new IllegalStateException("db down");
+        }));
+
+        assertEquals("value", cache.get("key", key -> "value"));
+    }
+
+    @Test
+    void expiredEntryIsReloaded() throws InterruptedException {
+        LoadingCache<String, Integer> cache = new LoadingCache<>(10, 20);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("key", key -> loads.incrementAndGet());
+        Thread.sleep(40);
+        cache.get("key", key -> loads.incrementAndGet());
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted() throws InterruptedException {
+        LoadingCache<Integer, Integer> cache = new LoadingCache<>(10, 60_000);
+        for (int i = 0; i < 10; i++) {
+            cache.get(i, key -> key);
+            Thread.sleep(2);
+        }
+        // Обращение к первой записи делает ее самой свежей
+        cache.get(0, key -> -1);
+        cache.get(10, key -> key);
+
+        assertTrue(cache.size() <= 10);
+        assertTrue(cache.evictionCount() > 0);
+        assertEquals(0, cache.get(0, key -> -1));
+        assertEquals(-1, cache.get(1, key -> -1));
+    }
+
+    @Test
+    void invalidateDropsOnlyThatKey() {
+        LoadingCache<String, String> cache = new LoadingCache<>(10, 60_000);
+        cache.get("a", key -> "a1");
+        cache.get("b", key -> "b1");
+
+        cache.invalidate("a");
+
+        assertEquals("a2", cache.get("a", key -> "a2"));
+        assertEquals("b1", cache.get("b", key -> "b2"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
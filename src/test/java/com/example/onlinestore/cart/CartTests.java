@@ -0,0 +1,72 @@
+package com.example.onlinestore.cart;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CartTests {
+
+    @Test
+    void totalsFollowEveryChange() {
+        Cart cart = new Cart();
+        cart.add(1, 2, new BigDecimal("10.50"));
+        cart.add(2, 1, new BigDecimal("99.99"));
+        cart.add(1, 1, new BigDecimal("10.50"));
+
+        assertEquals(2, cart.size());
+        assertEquals(4, cart.getTotalItems());
+        assertEquals(new BigDecimal("131.49"), cart.getTotalPrice());
+
+        assertTrue(cart.update(2, 3));
+        assertEquals(new BigDecimal("331.47"), cart.getTotalPrice());
+
+        assertTrue(cart.remove(1));
+        assertFalse(cart.remove(1));
+        assertEquals(0, cart.quantity(1));
+        assertEquals(3, cart.getTotalItems());
+        assertEquals(new BigDecimal("299.97"), cart.getTotalPrice());
+
+        cart.clear();
+        assertTrue(cart.isEmpty());
+        assertEquals(BigDecimal.ZERO.setScale(2), cart.getTotalPrice());
+    }
+
+    @Test
+    void nonPositiveQuantitiesAreRejected() {
+        Cart cart = new Cart();
+        cart.add(1, 2, new BigDecimal("10.00"));
+
+        assertThrows(IllegalArgumentException.class, () -> cart.add(1, -5, new BigDecimal("10.00")));
+        assertThrows(IllegalArgumentException.class, () -> cart.add(2, 0, new BigDecimal("10.00")));
+        assertEquals(2, cart.getTotalItems());
+        assertEquals(new BigDecimal("20.00"), cart.getTotalPrice());
+
+        // Обновление до нуля удаляет позицию
+        assertTrue(cart.update(1, 0));
+        assertTrue(cart.isEmpty());
+        assertEquals(0, cart.getTotalItems());
+        assertFalse(cart.update(1, -1));
+    }
+
+    @Test
+    void indexSurvivesGrowthAndRemovals() {
+        Cart cart = new Cart();
+        for (long id = 1; id <= 100; id++) {
+            cart.add(id * 1_000_003L, (int) id, BigDecimal.ONE);
+        }
+        for (long id = 1; id <= 100; id += 2) {
+            cart.remove(id * 1_000_003L);
+        }
+
+        assertEquals(50, cart.size());
+        for (long id = 1; id <= 100; id++) {
+            assertEquals(id % 2 == 0 ? (int) id : 0, cart.quantity(id * 1_000_003L));
+        }
+        assertEquals(2550, cart.getTotalItems());
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.onlinestore.cart;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CookieCartStoreTests {
+
+    private final CookieCartStore store = new CookieCartStore("test-secret");
+
+    @Test
+    void roundTripKeepsQuantities() {
+        Cart cart = new Cart();
+        cart.add(42, 1, new BigDecimal("10.00"));
+        cart.add(7, 3, new BigDecimal("5.00"));
+        cart.add(100_000, 2, new BigDecimal("1.00"));
+
+        String value = store.encode(cart);
+        assertTrue(value.length() < 40, value);
+
+        Cart decoded = store.decode(value);
+        assertEquals(3, decoded.size());
+        assertEquals(3, decoded.quantity(7));
+        assertEquals(1, decoded.quantity(42));
+        assertEquals(2, decoded.quantity(100_000));
+        assertEquals(6, decoded.getTotalItems());
+    }
+
+    @Test
+    void tamperedOrForeignCookieIsIgnored() {
+        Cart cart = new Cart();
+        cart.add(5, 1, BigDecimal.ONE);
+        String value = store.encode(cart);
+
+        char[] chars = value.toCharArray();
+        chars[2] = chars[2] == 'A' ? 'B' : 'A';
+        assertNull(store.decode(new String(chars)));
+        assertNull(new CookieCartStore("other-secret").decode(value));
+        assertNull(store.decode("not base64!"));
+    }
+}
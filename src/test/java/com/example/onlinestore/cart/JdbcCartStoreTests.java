@@ -0,0 +1,79 @@
+package com.example.onlinestore.cart;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest(properties = "app.cart.store=jdbc")
+class JdbcCartStoreTests {
+
+    @Autowired
+    private JdbcCartStore cartStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void changesAreWrittenThrough() {
+        String cartId = UUID.randomUUID().toString();
+        cartStore.update(cartId, cart -> cart.add(7, 2, new BigDecimal("15.00")));
+        cartStore.update(cartId, cart -> cart.add(9, 1, new BigDecimal("3.50")));
+
+        assertEquals(1, rows(cartId));
+        assertEquals(3, cartStore.find(cartId).getTotalItems());
+
+        // Корзина, прочитанная из БД (как после перезапуска узла)
+        byte[] data = jdbcTemplate.queryForObject("SELECT data FROM carts WHERE cart_id = ?", byte[].class, cartId);
+        Cart restored = CartCodec.decode(data);
+        assertEquals(2, restored.quantity(7));
+        assertEquals(new BigDecimal("33.50"), restored.getTotalPrice());
+
+        cartStore.delete(cartId);
+        assertNull(cartStore.find(cartId));
+        assertEquals(0, rows(cartId));
+    }
+
+    @Test
+    void concurrentChangesFromTwoNodesAreAllKept() throws Exception {
+        JdbcCartStore otherNode = new JdbcCartStore();
+        ReflectionTestUtils.setField(otherNode, "jdbcTemplate", jdbcTemplate);
+        String cartId = UUID.randomUUID().toString();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 1; i <= 20; i++) {
+                long productId = i;
+                JdbcCartStore node = i % 2 == 0 ? cartStore : otherNode;
+                futures.add(executor.submit(() ->
+                        node.update(cartId, cart -> cart.add(productId, 1, BigDecimal.ONE))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Cart cart = otherNode.find(cartId);
+        assertEquals(20, cart.size());
+        assertEquals(20, cart.getTotalItems());
+    }
+
+    private int rows(String cartId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM carts WHERE cart_id = ?", Integer.class, cartId);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.Order;
+import com.example.onlinestore.repository.OrderRepository;
+import com.example.onlinestore.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class OrderExportTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Test
+    void keysetPagesCoverRangeWithoutGapsOrDuplicates() {
+        LocalDateTime start = LocalDateTime.of(2001, 3, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2001, 3, 31, 23, 59);
+        List<Order> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            // Два заказа с одинаковой датой: порядок между ними задает id
+            created.add(order("Keyset " + i, start.plusDays(Math.min(i, 3))));
+        }
+        order("Outside", end.plusDays(1));
+        created.sort(Comparator.comparing(Order::getOrderDate).thenComparing(Order::getId).reversed());
+
+        List<Long> walked = new ArrayList<>();
+        List<Order> page = orderService.getOrdersByDateRange(start, end, null, null, 2);
+        while (!page.isEmpty()) {
+            page.forEach(order -> walked.add(order.getId()));
+            Order last = page.get(page.size() - 1);
+            page = orderService.getOrdersByDateRange(start, end, last.getOrderDate(), last.getId(), 2);
+        }
+
+        assertEquals(created.stream().map(Order::getId).toList(), walked);
+    }
+
+    @Test
+    void exportWritesEveryOrderInRange() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            order("Export " + i, LocalDateTime.of(2001, 4, 10 + i, 12, 0));
+        }
+        order("Export outside", LocalDateTime.of(2001, 5, 1, 0, 0));
+
+        String csv = mockMvc.perform(get("/order/admin/export")
+                        .param("from", "2001-04-01")
+                        .param("to", "2001-04-30")
+                        .session(AdminSession.create()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        String[] lines = csv.trim().split("\\R");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("id,date,customer"));
+        assertTrue(lines[1].contains("Export 2"));
+        assertTrue(lines[3].contains("Export 0"));
+        assertFalse(csv.contains("Export outside"));
+    }
+
+    @Test
+    void exportRequiresAdmin() throws Exception {
+        mockMvc.perform(get("/order/admin/export")
+                        .param("from", "2001-04-01")
+                        .param("to", "2001-04-30"))
+                .andExpect(status().is3xxRedirection());
+    }
+
+    private Order order(String customer, LocalDateTime date) {
+        Order order = new Order(customer, "export@example.com", "Address");
+        order.setOrderDate(date);
+        order.setTotalAmount(new BigDecimal("10.00"));
+        return orderRepository.save(order);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.Order;
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import com.example.onlinestore.service.OrderService;
+import com.example.onlinestore.service.ShoppingCartService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+// Страницы рендерятся без открытой сессии Hibernate (open-in-view=false):
+// ленивые связи, которые шаблон не получил заранее, здесь упадут
+@SpringBootTest
+@AutoConfigureMockMvc
+class OrderPagesTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ShoppingCartService cartService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Order order;
+
+    @BeforeEach
+    void createOrder() {
+        Product product = productRepository.save(
+                new Product("Pages kettle", "Description", new BigDecimal("15.00"), null, 100));
+        String cartId = UUID.randomUUID().toString();
+        cartService.addProduct(cartId, product, 2);
+        order = orderService.createOrderFromCart(cartId, "Pages customer", "pages@example.com", "Address");
+    }
+
+    @Test
+    void adminOrderDetailsRenderItems() throws Exception {
+        mockMvc.perform(get("/order/admin/{id}", order.getId()).session(AdminSession.create()))
+                .andExpect(status().isOk())
+                .andExpect(view().name("admin/order-details"))
+                .andExpect(content().string(containsString("Pages kettle")));
+    }
+
+    @Test
+    void adminOrderListRenders() throws Exception {
+        mockMvc.perform(get("/order/admin").session(AdminSession.create()))
+                .andExpect(status().isOk())
+                .andExpect(view().name("admin/orders"))
+                .andExpect(content().string(containsString("Pages customer")));
+
+        mockMvc.perform(get("/order/admin").param("q", "Pages customer").session(AdminSession.create()))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Pages customer")));
+    }
+
+    @Test
+    void adminDashboardRenders() throws Exception {
+        mockMvc.perform(get("/admin").session(AdminSession.create()))
+                .andExpect(status().isOk())
+                .andExpect(view().name("admin/dashboard"));
+    }
+
+    @Test
+    void customerOrderPagesRender() throws Exception {
+        mockMvc.perform(get("/order/success/{id}", order.getId()))
+                .andExpect(status().isOk())
+                .andExpect(view().name("order/success"))
+                .andExpect(content().string(containsString("Pages customer")));
+
+        mockMvc.perform(get("/order/payment/{id}", order.getId()).session(AdminSession.create()))
+                .andExpect(status().isOk())
+                .andExpect(view().name("order/payment-method"));
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.cart.CartIdResolver;
+import com.example.onlinestore.dto.YooKassaWebhookRequest;
+import com.example.onlinestore.model.Order;
+import com.example.onlinestore.model.Payment;
+import com.example.onlinestore.model.PaymentStatus;
+import com.example.onlinestore.repository.OrderRepository;
+import com.example.onlinestore.repository.PaymentRepository;
+import com.example.onlinestore.webhook.WebhookProcessor;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// API ЮKassa заменено локальным HTTP-сервером: GET /payments/{id} отдает статус из statuses,
+// POST /payments создает платеж
+@SpringBootTest
+@AutoConfigureMockMvc
+class PaymentWebhookTests {
+
+    private static final Map<String, String> statuses = new ConcurrentHashMap<>();
+    private static final AtomicInteger createdPayments = new AtomicInteger();
+    private static HttpServer yooKassa;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PaymentController paymentController;
+
+    @Autowired
+    private WebhookProcessor webhookProcessor;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @DynamicPropertySource
+    static void yooKassaUrl(DynamicPropertyRegistry registry) throws IOException {
+        yooKassa = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        yooKassa.createContext("/payments", PaymentWebhookTests::handle);
+        yooKassa.start();
+        registry.add("yookassa.api-url", () -> "http://localhost:" + yooKassa.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopYooKassa() {
+        yooKassa.stop(0);
+    }
+
+    @Test
+    void webhookIsOpenToYooKassaWithoutLoginOrCsrf() throws Exception {
+        Payment payment = payment();
+        statuses.put(payment.getPaymentId(), "succeeded");
+
+        mockMvc.perform(post("/payment/webhook")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"notification\",\"event\":\"payment.succeeded\"," +
+                                "\"object\":{\"id\":\"" + payment.getPaymentId() + "\",\"status\":\"succeeded\"}}"))
+                .andExpect(status().isOk());
+
+        assertEquals(PaymentStatus.SUCCEEDED, awaitStatus(payment));
+    }
+
+    @Test
+    void statusIsTakenFromYooKassaNotFromNotification() throws Exception {
+        Payment payment = payment();
+        statuses.put(payment.getPaymentId(), "canceled");
+
+        postWebhook(payment.getPaymentId(), "succeeded", 200);
+
+        assertEquals(PaymentStatus.CANCELED, awaitStatus(payment));
+    }
+
+    @Test
+    void notificationForPaymentUnknownToYooKassaIsDropped() throws Exception {
+        String forgedId = UUID.randomUUID().toString();
+
+        postWebhook(forgedId, "succeeded", 200);
+
+        // Воркер не нашел платеж в ЮKassa и отбросил событие: повтор снова принимается
+        long deadline = System.currentTimeMillis() + 5000;
+        boolean accepted = false;
+        while (!accepted && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            accepted = webhookProcessor.submit(forgedId, PaymentStatus.SUCCEEDED);
+        }
+        assertTrue(accepted);
+    }
+
+    @Test
+    void notificationIsAcceptedWhileYooKassaIsUnavailable() throws Exception {
+        Payment payment = payment();
+        statuses.put(payment.getPaymentId(), "error");
+
+        // Ответ не зависит от ЮKassa: событие уже в журнале
+        postWebhook(payment.getPaymentId(), "succeeded", 200);
+
+        statuses.put(payment.getPaymentId(), "succeeded");
+        assertEquals(PaymentStatus.SUCCEEDED, awaitStatus(payment));
+    }
+
+    @Test
+    void onlyVisitorWhoPlacedOrderCanPay() throws Exception {
+        String visitorId = UUID.randomUUID().toString();
+        Order order = order(visitorId);
+        int created = createdPayments.get();
+
+        // Вход не нужен, но заказ, оформленный в другом браузере, оплатить нельзя
+        assertEquals("/order/success/" + order.getId(), createPayment(order, UUID.randomUUID().toString()));
+        assertEquals(created, createdPayments.get());
+
+        String redirect = createPayment(order, visitorId);
+        assertTrue(redirect.startsWith("http://localhost:1/pay/"), redirect);
+        assertEquals(created + 1, createdPayments.get());
+    }
+
+    // Возвращает адрес перенаправления
+    private String createPayment(Order order, String cartId) throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        CsrfToken csrf = (CsrfToken) mockMvc.perform(get("/").session(session))
+                .andReturn().getRequest().getAttribute(CsrfToken.class.getName());
+        MvcResult result = mockMvc.perform(post("/payment/create/{id}", order.getId())
+                        .session(session)
+                        .cookie(new Cookie(CartIdResolver.COOKIE_NAME, cartId))
+                        .param(csrf.getParameterName(), csrf.getToken()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().is3xxRedirection())
+                .andReturn().getResponse().getRedirectedUrl();
+    }
+
+    private void postWebhook(String paymentId, String status, int expectedStatus) {
+        YooKassaWebhookRequest webhook = new YooKassaWebhookRequest();
+        webhook.setType("notification");
+        webhook.setEvent("payment." + status);
+        YooKassaWebhookRequest.PaymentObject object = new YooKassaWebhookRequest.PaymentObject();
+        object.setId(paymentId);
+        object.setStatus(status);
+        webhook.setObject(object);
+        assertEquals(expectedStatus, paymentController.handleWebhook(webhook).getStatusCode().value());
+    }
+
+    private PaymentStatus awaitStatus(Payment payment) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        PaymentStatus status = PaymentStatus.PENDING;
+        while (status == PaymentStatus.PENDING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            status = paymentRepository.findByPaymentId(payment.getPaymentId()).orElseThrow().getStatus();
+        }
+        return status;
+    }
+
+    private Order order(String visitorId) {
+        Order order = new Order("Payer", "payer@example.com", "Address");
+        order.setTotalAmount(new BigDecimal("40.00"));
+        order.setVisitorId(visitorId);
+        return orderRepository.save(order);
+    }
+
+    private Payment payment() {
+        Order order = order(UUID.randomUUID().toString());
+        Payment payment = new Payment(order, order.getTotalAmount(), "Test");
+        payment.setPaymentId(UUID.randomUUID().toString());
+        payment.setStatus(PaymentStatus.PENDING);
+        return paymentRepository.save(payment);
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        if ("POST".equals(exchange.getRequestMethod())) {
+            createdPayments.incrementAndGet();
+            String paymentId = UUID.randomUUID().toString();
+            respond(exchange, 200, "{\"id\":\"" + paymentId + "\",\"status\":\"pending\"," +
+                    "\"confirmation\":{\"type\":\"redirect\",\"confirmation_url\":\"http://localhost:1/pay/" +
+                    paymentId + "\"}}");
+            return;
+        }
+        String path = exchange.getRequestURI().getPath();
+        String status = statuses.get(path.substring(path.lastIndexOf('/') + 1));
+        if (status == null) {
+            respond(exchange, 404, "{\"type\":\"error\",\"code\":\"not_found\"}");
+        } else if (status.equals("error")) {
+            respond(exchange, 500, "{\"type\":\"error\",\"code\":\"internal_server_error\"}");
+        } else {
+            respond(exchange, 200, "{\"id\":\"" + path + "\",\"status\":\"" + status + "\"}");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
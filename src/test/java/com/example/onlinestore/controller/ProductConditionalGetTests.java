@@ -0,0 +1,113 @@
+package com.example.onlinestore.controller;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Версия каталога читается из БД на каждый запрос (version-ttl-ms=0),
+// чтобы изменение "с другого узла" было видно сразу
+@SpringBootTest(properties = "app.catalog.version-ttl-ms=0")
+@AutoConfigureMockMvc
+class ProductConditionalGetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Product product;
+
+    @BeforeEach
+    void createProduct() {
+        Product created = new Product("ETag lamp", "Description", new BigDecimal("30.00"), null, 10);
+        created.setUpdatedAt(LocalDateTime.now());
+        product = productRepository.save(created);
+    }
+
+    @Test
+    void repeatedVisitGetsNotModified() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        String etag = homeEtag(session);
+
+        mockMvc.perform(get("/").session(session).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void expiredSessionGetsFreshPage() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        String etag = homeEtag(session);
+
+        // Тот же id сессии, но на сервере ее уже нет: старый CSRF-токен недействителен
+        MockHttpSession expired = new MockHttpSession(null, session.getId());
+        mockMvc.perform(get("/").session(expired).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void changeOnAnotherNodeChangesEtag() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        String etag = homeEtag(session);
+
+        // Другой узел меняет товар напрямую в БД, кэши этого узла об этом не знают
+        jdbcTemplate.update("UPDATE products SET price = ?, updated_at = ? WHERE id = ?",
+                new BigDecimal("25.00"), Timestamp.valueOf(LocalDateTime.now().plusMinutes(1)), product.getId());
+
+        String changed = mockMvc.perform(get("/").session(session).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changed);
+    }
+
+    @Test
+    void cartChangeGetsFreshPage() throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        String etag = homeEtag(session);
+
+        CsrfToken csrf = (CsrfToken) mockMvc.perform(get("/").session(session))
+                .andReturn().getRequest().getAttribute(CsrfToken.class.getName());
+        // Корзина привязана к cookie CART_ID, который выдается при первом добавлении
+        Cookie[] cookies = mockMvc.perform(post("/cart/add").session(session)
+                        .param("productId", product.getId().toString())
+                        .param(csrf.getParameterName(), csrf.getToken()))
+                .andExpect(status().is3xxRedirection())
+                .andReturn().getResponse().getCookies();
+
+        mockMvc.perform(get("/").session(session).cookie(cookies).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    // Первый ответ выдает сессии CSRF-токен, ETag второго уже стабилен
+    private String homeEtag(MockHttpSession session) throws Exception {
+        mockMvc.perform(get("/").session(session)).andExpect(status().isOk());
+        String etag = mockMvc.perform(get("/").session(session))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+}
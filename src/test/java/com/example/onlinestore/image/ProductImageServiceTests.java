@@ -0,0 +1,39 @@
+package com.example.onlinestore.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductImageServiceTests {
+
+    private static final String HASH = "0123456789abcdef0123456789abcdef";
+
+    @Test
+    void catalogUsesThumbnailOfLocalImage() {
+        String detail = ProductImageService.URL_PREFIX + HASH + "-detail.jpg";
+
+        assertEquals(ProductImageService.URL_PREFIX + HASH + "-thumb.jpg", ProductImageService.thumbnailUrl(detail));
+        assertEquals(detail, ProductImageService.imageUrl(detail));
+    }
+
+    @Test
+    void missingOrLegacyImageFallsBackToLocalPlaceholder() {
+        assertEquals(ProductImageService.PLACEHOLDER_URL, ProductImageService.imageUrl(null));
+        assertEquals(ProductImageService.PLACEHOLDER_URL, ProductImageService.thumbnailUrl(" "));
+        assertEquals(ProductImageService.PLACEHOLDER_URL,
+                ProductImageService.imageUrl("https://via.placeholder.com/400"));
+    }
+
+    @Test
+    void resizeKeepsAspectRatioAndNeverUpscales() {
+        BufferedImage large = ImageResizer.fit(new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB), 480, 360);
+        assertEquals(480, large.getWidth());
+        assertEquals(240, large.getHeight());
+
+        BufferedImage small = ImageResizer.fit(new BufferedImage(100, 50, BufferedImage.TYPE_INT_ARGB), 480, 360);
+        assertEquals(100, small.getWidth());
+        assertEquals(50, small.getHeight());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.onlinestore.search;
+
+import com.example.onlinestore.model.Order;
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import com.example.onlinestore.service.OrderService;
+import com.example.onlinestore.service.ShoppingCartService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Контекст общий с другими тестами, поэтому слова в заказах уникальны для каждого теста
+@SpringBootTest
+class OrderSearchIndexTests {
+
+    @Autowired
+    private OrderSearchIndex orderSearchIndex;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ShoppingCartService cartService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Product product;
+    private String tag;
+
+    @BeforeEach
+    void createProduct() {
+        product = productRepository.save(
+                new Product("Search kettle", "Description", new BigDecimal("15.00"), null, 1000));
+        tag = "q" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+    }
+
+    @Test
+    void wordPrefixFindsOrdersNewestFirst() {
+        Order first = order("Иван " + tag, "Тверская 1");
+        Order second = order("Петр " + tag, "Арбат 5");
+
+        assertEquals(List.of(second.getId(), first.getId()), orderSearchIndex.search(tag.substring(0, 5), null, 10));
+    }
+
+    @Test
+    void everyQueryWordMustMatch() {
+        Order first = order("Иван " + tag, "Тверская 1");
+        order("Петр " + tag, "Арбат 5");
+
+        assertEquals(List.of(first.getId()), orderSearchIndex.search("твер " + tag, null, 10));
+        assertEquals(List.of(), orderSearchIndex.search("твер " + tag + "x", null, 10));
+    }
+
+    @Test
+    void cursorReturnsNextPage() {
+        Order first = order("Иван " + tag, "Тверская 1");
+        Order second = order("Петр " + tag, "Арбат 5");
+        Order third = order("Анна " + tag, "Арбат 7");
+
+        assertEquals(List.of(third.getId(), second.getId()), orderSearchIndex.search(tag, null, 2));
+        assertEquals(List.of(first.getId()), orderSearchIndex.search(tag, second.getId(), 2));
+    }
+
+    @Test
+    void prefixLongerThanStoredIsCheckedAgainstWholeWord() {
+        String word = tag + "abcdefghijklmnop";
+        Order match = order("Иван " + word, "Тверская 1");
+        // Первые 16 символов у слов совпадают, различаются они только дальше
+        order("Петр " + tag + "abcdefghijkz", "Арбат 5");
+
+        assertEquals(List.of(match.getId()), orderSearchIndex.search(word.substring(0, 21), null, 10));
+        assertEquals(List.of(match.getId()), orderSearchIndex.search(word, null, 10));
+    }
+
+    private Order order(String customerName, String address) {
+        String cartId = UUID.randomUUID().toString();
+        cartService.addProduct(cartId, product, 1);
+        return orderService.createOrderFromCart(cartId, customerName, tag + "@example.com", address);
+    }
+}
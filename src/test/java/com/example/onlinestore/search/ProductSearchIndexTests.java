@@ -0,0 +1,127 @@
+package com.example.onlinestore.search;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSearchIndexTests {
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+
+    @Test
+    void nameMatchRanksAboveDescriptionMatch() {
+        index.index(product(1L, "Чехол", "Подходит для ноутбука"));
+        index.index(product(2L, "Ноутбук", "Легкий и тонкий"));
+
+        assertEquals(List.of(2L, 1L), index.search("ноутбук"));
+    }
+
+    @Test
+    void everyQueryWordMustMatch() {
+        index.index(product(1L, "Красная кружка", "Керамика"));
+        index.index(product(2L, "Синяя кружка", "Керамика"));
+
+        assertEquals(List.of(1L), index.search("кружка красная"));
+        assertEquals(List.of(), index.search("кружка зеленая"));
+    }
+
+    @Test
+    void partialWordsMatchThroughTrigrams() {
+        index.index(product(1L, "Смартфон", "Телефон"));
+        index.index(product(2L, "Смарт-часы", "Браслет"));
+
+        assertEquals(List.of(1L), index.search("артфо"));
+        // Точное совпадение весит больше частичного
+        assertEquals(List.of(2L, 1L), index.search("смарт"));
+    }
+
+    @Test
+    void shortWordsMatchByPrefix() {
+        index.index(product(1L, "Телевизор", "Экран 55"));
+        index.index(product(2L, "Кабель", "Для тв"));
+
+        assertEquals(List.of(1L), index.search("те"));
+        assertEquals(List.of(2L), index.search("тв"));
+        // Короткое слово не ищется в середине слов
+        assertEquals(List.of(), index.search("ле"));
+    }
+
+    @Test
+    void updatedAndRemovedProductsLeaveIndex() {
+        index.index(product(1L, "Лампа", "Настольная"));
+        index.index(product(1L, "Торшер", "Напольный"));
+        assertTrue(index.search("лампа").isEmpty());
+        assertTrue(index.search("ла").isEmpty());
+        assertEquals(List.of(1L), index.search("торшер"));
+
+        index.remove(1L);
+        assertTrue(index.search("торшер").isEmpty());
+        assertTrue(index.search("то").isEmpty());
+    }
+
+    @Test
+    void rebuildKeepsChangesMadeWhileItRuns() {
+        ProductRepository repository = mock(ProductRepository.class);
+        ReflectionTestUtils.setField(index, "productRepository", repository);
+        // Пачка прочитана до того, как товар 1 удалили, а товар 2 переименовали
+        when(repository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            if ((Long) invocation.getArgument(0) > 0) {
+                return List.of();
+            }
+            List<Product> batch = List.of(product(1L, "Лампа", "Старая"), product(2L, "Лампа", "Старая"));
+            index.remove(1L);
+            index.index(product(2L, "Торшер", "Новый"));
+            return batch;
+        });
+
+        index.rebuild();
+
+        assertEquals(List.of(), index.search("лампа"));
+        assertEquals(List.of(2L), index.search("торшер"));
+    }
+
+    @Test
+    void pagesSeekByScoreAndId() {
+        index.index(product(1L, "Чайник", "Стальной"));
+        index.index(product(2L, "Термос", "Чайник не нужен"));
+        index.index(product(3L, "Чайник", "Стеклянный"));
+        index.index(product(4L, "Чайник", "Чайник со свистком"));
+
+        assertEquals(List.of(4L, 1L, 3L, 2L), index.search("чайник"));
+
+        ProductSearchIndex.RankedPage first = index.search("чайник", null, null, 2);
+        assertEquals(List.of(4L, 1L), first.ids());
+        assertTrue(first.hasNext());
+        assertFalse(first.hasPrevious());
+
+        ProductSearchIndex.RankedPage second = index.search("чайник", 1L, null, 2);
+        assertEquals(List.of(3L, 2L), second.ids());
+        assertFalse(second.hasNext());
+        assertTrue(second.hasPrevious());
+
+        ProductSearchIndex.RankedPage back = index.search("чайник", null, 3L, 2);
+        assertEquals(List.of(4L, 1L), back.ids());
+        assertFalse(back.hasPrevious());
+
+        assertTrue(index.search("чайник", 99L, null, 2).cursorLost());
+    }
+
+    private static Product product(Long id, String name, String description) {
+        Product product = new Product(name, description, BigDecimal.ONE, null, 1);
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.onlinestore.service;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import com.example.onlinestore.repository.StockRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Резервы истекают сразу (TTL 0), чтобы проверить подтверждение истекшего резерва
+@SpringBootTest(properties = {
+        "app.inventory.ledger-enabled=true",
+        "app.inventory.hold-ttl-seconds=0"
+})
+class InventoryServiceTests {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void committedHoldIsWrittenToDatabase() {
+        Long id = product(5);
+
+        transaction().executeWithoutResult(status ->
+                assertNull(inventoryService.reserveForCurrentTransaction(List.of(Map.entry(id, 2)))));
+        inventoryService.flush();
+
+        assertEquals(3, inventoryService.getAvailable(id));
+        assertEquals(3, stockRepository.findStockQuantity(id));
+    }
+
+    @Test
+    void rolledBackHoldReturnsStock() {
+        Long id = product(5);
+
+        transaction().executeWithoutResult(status -> {
+            assertNull(inventoryService.reserveForCurrentTransaction(List.of(Map.entry(id, 2))));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(5, inventoryService.getAvailable(id));
+    }
+
+    @Test
+    void expiredHoldIsReservedAgainOnCommit() {
+        Long id = product(1);
+
+        transaction().executeWithoutResult(status -> {
+            assertNull(inventoryService.reserveForCurrentTransaction(List.of(Map.entry(id, 1))));
+            expire();
+        });
+        inventoryService.flush();
+
+        assertEquals(0, inventoryService.getAvailable(id));
+        assertEquals(0, stockRepository.findStockQuantity(id));
+    }
+
+    @Test
+    void expiredHoldSoldToAnotherOrderFailsCommit() {
+        Long id = product(1);
+        TransactionTemplate other = transaction();
+        other.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        assertThrows(IllegalStateException.class, () -> transaction().executeWithoutResult(status -> {
+            assertNull(inventoryService.reserveForCurrentTransaction(List.of(Map.entry(id, 1))));
+            expire();
+            // Освободившуюся единицу забирает другой заказ
+            other.executeWithoutResult(s ->
+                    assertNull(inventoryService.reserveForCurrentTransaction(List.of(Map.entry(id, 1)))));
+        }));
+        inventoryService.flush();
+
+        assertEquals(0, inventoryService.getAvailable(id));
+        assertEquals(0, stockRepository.findStockQuantity(id));
+    }
+
+    private void expire() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        inventoryService.expireHolds();
+    }
+
+    private Long product(int stock) {
+        return productRepository.save(
+                new Product("Ledger item", "Description", new BigDecimal("10.00"), null, stock)).getId();
+    }
+
+    private TransactionTemplate transaction() {
+        return new TransactionTemplate(transactionManager);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.onlinestore.service;
+
+import com.example.onlinestore.model.Order;
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class OrderCheckoutPriceTests {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ShoppingCartService cartService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void orderIsPricedAtCheckoutNotAtAddToCart() {
+        Product product = productRepository.save(
+                new Product("Priced lamp", "Description", new BigDecimal("10.00"), null, 100));
+        String cartId = UUID.randomUUID().toString();
+        cartService.addProduct(cartId, product, 3);
+
+        // Цена изменилась, пока товар лежал в корзине
+        product.setPrice(new BigDecimal("12.50"));
+        productService.saveProduct(product);
+
+        Order order = orderService.createOrderFromCart(cartId, "Price", "price@example.com", "Address");
+        Order saved = orderService.getOrderWithItems(order.getId());
+
+        assertEquals(0, new BigDecimal("12.50").compareTo(saved.getItems().get(0).getPrice()));
+        assertEquals(0, new BigDecimal("37.50").compareTo(saved.getTotalAmount()));
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.onlinestore.service;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Обращения Hibernate к БД на запись заказа из 20 позиций.
+// С IDENTITY каждая строка - отдельный INSERT: 21 обращение на заказ.
+// С пулами id заказ и позиции уходят двумя пачками, плюс редкие запросы к последовательностям
+@SpringBootTest
+class OrderInsertBatchingTests {
+
+    private static final int LINES = 20;
+    private static final int ORDERS = 10;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ShoppingCartService cartService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void orderWithManyLinesIsInsertedInBatches() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < LINES; i++) {
+            products.add(productRepository.save(
+                    new Product("Batch " + i, "Description", new BigDecimal("5.00"), null, 10_000)));
+        }
+        // Первый заказ загружает пулы id
+        checkout(products);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        for (int i = 0; i < ORDERS; i++) {
+            checkout(products);
+        }
+
+        double statementsPerOrder = (double) statistics.getPrepareStatementCount() / ORDERS;
+        System.out.println("Order insert: " + (LINES + 1) + " rows, " + statementsPerOrder +
+                " JDBC statements per order (IDENTITY: " + (LINES + 1) + ")");
+
+        assertEquals((long) ORDERS * (LINES + 1), statistics.getEntityInsertCount());
+        // Выборка текущих цен + вставка заказа + batch позиций (+ изредка пул id)
+        assertTrue(statementsPerOrder <= 4, "statements per order: " + statementsPerOrder);
+    }
+
+    private void checkout(List<Product> products) {
+        String cartId = UUID.randomUUID().toString();
+        for (Product product : products) {
+            cartService.addProduct(cartId, product, 1);
+        }
+        orderService.createOrderFromCart(cartId, "Batch", "batch@example.com", "Address");
+    }
+}
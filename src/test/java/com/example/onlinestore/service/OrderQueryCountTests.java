@@ -0,0 +1,90 @@
+package com.example.onlinestore.service;
+
+import com.example.onlinestore.dto.OrderSummary;
+import com.example.onlinestore.model.Order;
+import com.example.onlinestore.model.OrderItem;
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+class OrderQueryCountTests {
+
+    private static final int ORDERS = 30;
+    private static final int LINES_PER_ORDER = 3;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ShoppingCartService cartService;
+
+    private Statistics statistics;
+    private Long lastOrderId;
+
+    @BeforeEach
+    void createOrders() {
+        Product[] products = new Product[LINES_PER_ORDER];
+        for (int i = 0; i < LINES_PER_ORDER; i++) {
+            products[i] = productRepository.save(
+                    new Product("Product " + i, "Description", new BigDecimal("10.00"), null, 1000));
+        }
+        for (int i = 0; i < ORDERS; i++) {
+            String cartId = UUID.randomUUID().toString();
+            for (Product product : products) {
+                cartService.addProduct(cartId, product, 2);
+            }
+            lastOrderId = orderService.createOrderFromCart(cartId, "Customer " + i, "query@example.com", "Address").getId();
+        }
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void orderListPageIsSingleStatement() {
+        List<OrderSummary> page = orderService.getOrderSummaries(null, OrderService.DEFAULT_PAGE_SIZE);
+
+        assertFalse(page.isEmpty());
+        assertEquals(LINES_PER_ORDER * 2, page.get(0).getItemCount());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void recentOrdersAndHistoryAreSingleStatementEach() {
+        orderService.getRecentOrders(5);
+        orderService.getOrdersByEmail("query@example.com");
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void orderDetailsLoadItemsAndProductsInOneStatement() {
+        Order order = orderService.getOrderWithItems(lastOrderId);
+        for (OrderItem item : order.getItems()) {
+            item.getProduct().getName();
+        }
+
+        assertEquals(LINES_PER_ORDER, order.getItems().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.onlinestore.service;
+
+import com.example.onlinestore.cart.CartLine;
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.OrderRepository;
+import com.example.onlinestore.repository.ProductRepository;
+import com.example.onlinestore.repository.StockRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class OrderServiceConcurrencyTests {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 10;
+    private static final int INITIAL_STOCK = 50;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ShoppingCartService cartService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        Product product = productRepository.save(
+                new Product("Hot SKU", "Flash sale", new BigDecimal("100.00"), null, INITIAL_STOCK));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    String cartId = UUID.randomUUID().toString();
+                    cartService.addProduct(cartId, product, 1);
+                    try {
+                        orderService.createOrderFromCart(cartId, "Customer", "customer@example.com", "Address");
+                        succeeded.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(INITIAL_STOCK, succeeded.get());
+        assertEquals(THREADS * ATTEMPTS_PER_THREAD - INITIAL_STOCK, rejected.get());
+        assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void shortLineRejectsWholeOrder() {
+        Product plenty = productRepository.save(
+                new Product("Plenty", "In stock", new BigDecimal("10.00"), null, 10));
+        Product scarce = productRepository.save(
+                new Product("Scarce", "Almost gone", new BigDecimal("20.00"), null, 1));
+        long ordersBefore = orderRepository.count();
+
+        String cartId = UUID.randomUUID().toString();
+        cartService.addProduct(cartId, plenty, 3);
+        cartService.addProduct(cartId, scarce, 2);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () ->
+                orderService.createOrderFromCart(cartId, "Customer", "customer@example.com", "Address"));
+
+        assertTrue(e.getMessage().contains("Scarce"));
+        assertEquals(10, productRepository.findById(plenty.getId()).orElseThrow().getStockQuantity());
+        assertEquals(1, productRepository.findById(scarce.getId()).orElseThrow().getStockQuantity());
+        assertEquals(ordersBefore, orderRepository.count());
+        assertFalse(cartService.isEmpty(cartId));
+    }
+
+    @Test
+    void nonPositiveQuantityRejectsWholeOrder() {
+        Product product = productRepository.save(
+                new Product("Negative", "Returned by checkout", new BigDecimal("10.00"), null, 5));
+        long ordersBefore = orderRepository.count();
+
+        // Корзина такие строки не принимает; проверяем защиту при оформлении отдельно
+        String cartId = UUID.randomUUID().toString();
+        ShoppingCartService carts = mock(ShoppingCartService.class);
+        when(carts.getLines(cartId)).thenReturn(List.of(new CartLine(product.getId(), -5, new BigDecimal("10.00"))));
+        OrderService target = AopTestUtils.getTargetObject(orderService);
+        ReflectionTestUtils.setField(target, "cartService", carts);
+        try {
+            assertThrows(IllegalStateException.class, () ->
+                    orderService.createOrderFromCart(cartId, "Customer", "customer@example.com", "Address"));
+        } finally {
+            ReflectionTestUtils.setField(target, "cartService", cartService);
+        }
+
+        assertEquals(5, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+        assertEquals(ordersBefore, orderRepository.count());
+    }
+
+    @Test
+    void conditionalReserveRejectsNonPositiveQuantity() {
+        Product product = productRepository.save(
+                new Product("Zero", "Not reserved", new BigDecimal("10.00"), null, 5));
+
+        int[] updated = stockRepository.reserve(List.of(
+                Map.entry(product.getId(), -5), Map.entry(product.getId(), 0)));
+
+        assertArrayEquals(new int[]{0, 0}, updated);
+        assertEquals(5, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.onlinestore.service;
+
+import com.example.onlinestore.model.Order;
+import com.example.onlinestore.model.OrderStatus;
+import com.example.onlinestore.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class OrderStatsServiceTests {
+
+    @Autowired
+    private OrderStatsService orderStatsService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Test
+    void deltaAppliedDuringSeedIsNotLost() {
+        OrderStatsService stats = new OrderStatsService();
+        OrderRepository repository = mock(OrderRepository.class);
+        ReflectionTestUtils.setField(stats, "orderRepository", repository);
+
+        // Заказ коммитится, пока идут агрегирующие запросы, и в их результат не попадает
+        when(repository.sumByStatus()).thenAnswer(invocation -> {
+            stats.orderCreatedAfterCommit(order(1L, OrderStatus.PROCESSING, "100.00"));
+            return List.<Object[]>of(new Object[]{OrderStatus.PENDING, 2L, new BigDecimal("20.00")});
+        });
+        when(repository.sumByMonthAndStatus()).thenReturn(List.of());
+
+        stats.seed();
+
+        assertTrue(stats.isSeeded());
+        assertEquals(3, stats.getTotalOrdersCount());
+        assertEquals(new BigDecimal("100.00"), stats.getTotalRevenue());
+        assertEquals(new BigDecimal("100.00"), stats.getRevenue(YearMonth.now()));
+    }
+
+    @Test
+    void deltaAlreadyInSnapshotIsNotCountedTwice() {
+        OrderStatsService stats = new OrderStatsService();
+        OrderRepository repository = mock(OrderRepository.class);
+        ReflectionTestUtils.setField(stats, "orderRepository", repository);
+
+        // Смена статуса закоммичена до снимка, а ее afterCommit приходит уже во время пересчета
+        Order order = order(7L, OrderStatus.PROCESSING, "100.00");
+        when(repository.sumByStatus()).thenAnswer(invocation -> {
+            stats.statusChangedAfterCommit(order, OrderStatus.PENDING);
+            return List.<Object[]>of(new Object[]{OrderStatus.PROCESSING, 1L, new BigDecimal("100.00")});
+        });
+        when(repository.sumByMonthAndStatus()).thenReturn(List.of());
+        when(repository.findStatsRowsByIdIn(List.of(7L))).thenReturn(List.<Object[]>of(
+                new Object[]{7L, OrderStatus.PROCESSING, new BigDecimal("100.00"), order.getOrderDate()}));
+
+        stats.seed();
+
+        assertEquals(1, stats.getTotalOrdersCount());
+        assertEquals(0, stats.getOrdersCount(OrderStatus.PENDING));
+        assertEquals(new BigDecimal("100.00"), stats.getTotalRevenue());
+    }
+
+    @Test
+    void deltasAfterSeedAreNotReplayedByNextSeed() {
+        OrderStatsService stats = new OrderStatsService();
+        OrderRepository repository = mock(OrderRepository.class);
+        ReflectionTestUtils.setField(stats, "orderRepository", repository);
+        when(repository.sumByStatus()).thenReturn(List.of());
+        when(repository.sumByMonthAndStatus()).thenReturn(List.of());
+
+        stats.seed();
+        stats.orderCreatedAfterCommit(order(1L, OrderStatus.PENDING, "10.00"));
+        assertEquals(1, stats.getTotalOrdersCount());
+
+        // Следующий пересчет берет значения из базы и не добавляет старые изменения повторно
+        when(repository.sumByStatus()).thenReturn(
+                List.<Object[]>of(new Object[]{OrderStatus.PENDING, 1L, new BigDecimal("10.00")}));
+        stats.seed();
+        assertEquals(1, stats.getTotalOrdersCount());
+    }
+
+    @Test
+    void monthlyRevenueFallsBackToDatabaseBeforeSeed() {
+        OrderStatsService target = AopTestUtils.getTargetObject(orderStatsService);
+        ReflectionTestUtils.setField(target, "seeded", false);
+        try {
+            BigDecimal before = orderService.getMonthlyRevenue();
+            orderRepository.save(order(null, OrderStatus.PROCESSING, "50.00"));
+
+            assertEquals(0, before.add(new BigDecimal("50.00")).compareTo(orderService.getMonthlyRevenue()));
+        } finally {
+            orderStatsService.seed();
+        }
+
+        BigDecimal seeded = orderService.getMonthlyRevenue();
+        ReflectionTestUtils.setField(target, "seeded", false);
+        try {
+            assertEquals(0, seeded.compareTo(orderService.getMonthlyRevenue()));
+        } finally {
+            orderStatsService.seed();
+        }
+    }
+
+    private static Order order(Long id, OrderStatus status, String amount) {
+        Order order = new Order("Stats", "stats@example.com", "Address");
+        order.setId(id);
+        order.setStatus(status);
+        order.setTotalAmount(new BigDecimal(amount));
+        return order;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.onlinestore.service;
+
+import com.example.onlinestore.model.Order;
+import com.example.onlinestore.model.OrderStatus;
+import com.example.onlinestore.repository.OrderRepository;
+import com.example.onlinestore.repository.OrderStatusOutboxRepository;
+import com.example.onlinestore.repository.OrderStatusOutboxRepository.StatusChange;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Опрос по таймеру отключен: пачки применяются из теста или после коммита через relay.append
+@SpringBootTest(properties = "app.outbox.relay-interval-ms=3600000")
+class OrderStatusRelayTests {
+
+    @Autowired
+    private OrderStatusRelay relay;
+
+    @Autowired
+    private OrderStatusOutboxRepository outboxRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderStatsService orderStatsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void lastOutboxStatusIsAppliedWithStatsDelta() {
+        Order order = order(OrderStatus.PENDING);
+        long processing = orderStatsService.getOrdersCount(OrderStatus.PROCESSING);
+        long delivered = orderStatsService.getOrdersCount(OrderStatus.DELIVERED);
+
+        outboxRepository.append(order.getId(), OrderStatus.PROCESSING);
+        outboxRepository.append(order.getId(), OrderStatus.DELIVERED);
+        relay.relay();
+
+        assertEquals(OrderStatus.DELIVERED, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+        assertEquals(processing, orderStatsService.getOrdersCount(OrderStatus.PROCESSING));
+        assertEquals(delivered + 1, orderStatsService.getOrdersCount(OrderStatus.DELIVERED));
+        assertTrue(outboxRepository.findBatch(100).isEmpty());
+    }
+
+    @Test
+    void statusChangedSinceReadIsNotOverwritten() {
+        Order order = order(OrderStatus.CANCELLED);
+
+        // Релей прочитал PENDING, а администратор уже отменил заказ
+        int[] counts = outboxRepository.updateOrderStatuses(
+                List.of(new StatusChange(order.getId(), OrderStatus.PENDING, OrderStatus.PROCESSING)));
+
+        assertArrayEquals(new int[]{0}, counts);
+        assertEquals(OrderStatus.CANCELLED, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void entryMatchingCurrentStatusChangesNothing() {
+        Order order = order(OrderStatus.PROCESSING);
+        long processing = orderStatsService.getOrdersCount(OrderStatus.PROCESSING);
+
+        outboxRepository.append(order.getId(), OrderStatus.PROCESSING);
+        relay.relay();
+
+        assertEquals(processing, orderStatsService.getOrdersCount(OrderStatus.PROCESSING));
+        assertTrue(outboxRepository.findBatch(100).isEmpty());
+    }
+
+    @Test
+    void lateEventDoesNotReopenCancelledOrder() {
+        Order order = order(OrderStatus.CANCELLED);
+        long processing = orderStatsService.getOrdersCount(OrderStatus.PROCESSING);
+
+        outboxRepository.append(order.getId(), OrderStatus.PROCESSING);
+        relay.relay();
+
+        assertEquals(OrderStatus.CANCELLED, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+        assertEquals(processing, orderStatsService.getOrdersCount(OrderStatus.PROCESSING));
+        assertTrue(outboxRepository.findBatch(100).isEmpty());
+    }
+
+    @Test
+    void relayIsWokenAfterOutboxCommit() throws InterruptedException {
+        Order order = order(OrderStatus.PENDING);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> relay.append(order.getId(), OrderStatus.PROCESSING));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (orderRepository.findById(order.getId()).orElseThrow().getStatus() != OrderStatus.PROCESSING
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(OrderStatus.PROCESSING, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+    }
+
+    private Order order(OrderStatus status) {
+        Order order = new Order("Relay", "relay@example.com", "Address");
+        order.setStatus(status);
+        order.setTotalAmount(new BigDecimal("25.00"));
+        return orderRepository.save(order);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.onlinestore.service;
+
+import com.example.onlinestore.image.ProductImageService;
+import com.example.onlinestore.model.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+class ProductCsvServiceTests {
+
+    @Autowired
+    private ProductCsvService csvService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void importUpdatesInsertsAndReportsRowErrors() throws Exception {
+        Product existing = productService.saveProduct(
+                new Product("Old name", "Old description", new BigDecimal("5.00"), null, 1));
+        // Загружаем в кэш, чтобы проверить сброс после загрузки
+        productService.getProductById(existing.getId());
+
+        String csv = "\uFEFFid;name;description;price;image_url;stock_quantity\n"
+                + existing.getId() + ";CSV lamp;\"Line one\nline \"\"two\"\"\";12,50;;7\n"
+                + ";CSV chair;Chair;3;;\n"
+                + ";No price;Description;;;1\n"
+                + "999999;Ghost;Description;1;;1\n";
+        ProductImportJob job = csvService.startImport(new MockMultipartFile(
+                "file", "products.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8)));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(ProductImportJob.Status.DONE, job.getStatus());
+        assertEquals(4, job.getRowsRead());
+        assertEquals(1, job.getInserted());
+        assertEquals(1, job.getUpdated());
+        assertEquals(2, job.getErrorCount());
+        assertEquals(5, job.getErrors().get(0).line());
+        assertEquals(6, job.getErrors().get(1).line());
+
+        Product updated = productService.getProductById(existing.getId()).orElseThrow();
+        assertEquals("CSV lamp", updated.getName());
+        assertEquals("Line one\nline \"two\"", updated.getDescription());
+        assertEquals(0, new BigDecimal("12.50").compareTo(updated.getPrice()));
+        assertEquals(7, updated.getStockQuantity());
+
+        StringWriter out = new StringWriter();
+        csvService.export(new PrintWriter(out));
+        assertTrue(out.toString().startsWith(ProductCsvService.HEADER + "\n"));
+        assertTrue(out.toString().contains(existing.getId() + ",CSV lamp,\"Line one\nline \"\"two\"\"\",12.50,,7"));
+        assertTrue(out.toString().contains(",CSV chair,Chair,3.00,,0"));
+    }
+
+    @Test
+    void batchRetriedAfterFailedCommitIsCountedOnce() throws Exception {
+        Product existing = productService.saveProduct(
+                new Product("Retry lamp", "Description", new BigDecimal("5.00"), null, 1));
+
+        ProductCsvService target = AopTestUtils.getTargetObject(csvService);
+        Object transactionTemplate = ReflectionTestUtils.getField(target, "transactionTemplate");
+        Object imageService = ReflectionTestUtils.getField(target, "imageService");
+        ProductImageService images = mock(ProductImageService.class);
+        // Первая транзакция записывает пачку и откатывается, как при сбое коммита
+        AtomicBoolean failed = new AtomicBoolean();
+        ReflectionTestUtils.setField(target, "transactionTemplate", new TransactionTemplate(transactionManager) {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                return super.execute(status -> {
+                    T result = action.doInTransaction(status);
+                    if (failed.compareAndSet(false, true)) {
+                        throw new TransientDataAccessResourceException("Коммит не прошел");
+                    }
+                    return result;
+                });
+            }
+        });
+        ReflectionTestUtils.setField(target, "imageService", images);
+
+        ProductImportJob job;
+        try {
+            String csv = "id,name,description,price,image_url,stock_quantity\n"
+                    + existing.getId() + ",Retry lamp 2,Description,6,,2\n"
+                    + ",Retry chair,Chair,3,https://example.com/chair.jpg,1\n"
+                    + "999998,Ghost,Description,1,,1\n";
+            job = csvService.startImport(new MockMultipartFile(
+                    "file", "products.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8)));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        } finally {
+            ReflectionTestUtils.setField(target, "transactionTemplate", transactionTemplate);
+            ReflectionTestUtils.setField(target, "imageService", imageService);
+        }
+
+        assertTrue(failed.get());
+        assertEquals(ProductImportJob.Status.DONE, job.getStatus());
+        assertEquals(1, job.getInserted());
+        assertEquals(1, job.getUpdated());
+        assertEquals(1, job.getErrorCount());
+        assertEquals(1, productService.getAllProducts().stream()
+                .filter(p -> "Retry chair".equals(p.getName())).count());
+
+        // Внешнее изображение нового товара тоже скачивается
+        verify(images).importIfRemote(argThat(p -> p.getId() != null
+                && "Retry chair".equals(p.getName()) && "https://example.com/chair.jpg".equals(p.getImageUrl())));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.onlinestore.service;
+
+import com.example.onlinestore.cache.LoadingCache;
+import com.example.onlinestore.dto.ProductPage;
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ProductPaginationTests {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void cursorsWalkForwardAndBack() {
+        List<Long> ids = products(5);
+        long start = ids.get(0) - 1;
+
+        ProductPage first = productService.getProductPage(start, null, 2);
+        assertEquals(ids.subList(0, 2), ids(first));
+        assertEquals(ids.get(1), first.getNextCursor());
+
+        ProductPage second = productService.getProductPage(first.getNextCursor(), null, 2);
+        assertEquals(ids.subList(2, 4), ids(second));
+        assertEquals(ids.get(2), second.getPreviousCursor());
+
+        ProductPage back = productService.getProductPage(null, second.getPreviousCursor(), 2);
+        assertEquals(ids.subList(0, 2), ids(back));
+        assertEquals(ids.get(1), back.getNextCursor());
+
+        ProductPage last = productService.getProductPage(ids.get(3), null, 2);
+        assertEquals(ids.subList(4, 5), ids(last));
+        assertNull(last.getNextCursor());
+        assertNotNull(last.getPreviousCursor());
+    }
+
+    @Test
+    void cursorsFromRequestDoNotFillCaches() {
+        products(3);
+        productService.getProductPage(null, null, ProductService.DEFAULT_PAGE_SIZE);
+        LoadingCache<?, ?> pages = productService.getCaches().get("pages");
+        LoadingCache<?, ?> products = productService.getCaches().get("products");
+        int pagesBefore = pages.size();
+        int productsBefore = products.size();
+
+        for (long cursor = 1; cursor <= 200; cursor++) {
+            productService.getProductPage(cursor, null, ProductService.DEFAULT_PAGE_SIZE);
+            productService.getProductPage(null, cursor, ProductService.DEFAULT_PAGE_SIZE);
+            productService.getProductById(-cursor);
+        }
+
+        assertEquals(pagesBefore, pages.size());
+        assertEquals(productsBefore, products.size());
+    }
+
+    @Test
+    void stockChangeKeepsFirstPageAndCopiesAreIndependent() {
+        Long id = products(1).get(0);
+        productService.getProductPage(null, null, ProductService.DEFAULT_PAGE_SIZE);
+        LoadingCache<?, ?> pages = productService.getCaches().get("pages");
+        int pagesBefore = pages.size();
+
+        productService.evictAfterCommit(List.of(id));
+        assertEquals(pagesBefore, pages.size());
+
+        // Изменение выданного экземпляра не попадает в кэш
+        productService.getProductById(id).orElseThrow().setName("Changed by caller");
+        assertEquals("Page item 0", productService.getProductById(id).orElseThrow().getName());
+    }
+
+    @Test
+    void searchCursorsFollowRankingAndReportLostPosition() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(productService.saveProduct(
+                    new Product("Пагинатор " + i, "Description", new BigDecimal("1.00"), null, 1)).getId());
+        }
+
+        ProductPage first = productService.searchProductPage("пагинатор", null, null, 2);
+        assertEquals(ids.subList(0, 2), ids(first));
+        ProductPage second = productService.searchProductPage("пагинатор", first.getNextCursor(), null, 2);
+        assertEquals(ids.subList(2, 3), ids(second));
+        ProductPage back = productService.searchProductPage("пагинатор", null, second.getPreviousCursor(), 2);
+        assertEquals(ids.subList(0, 2), ids(back));
+
+        productService.deleteProduct(ids.get(1));
+        ProductPage lost = productService.searchProductPage("пагинатор", ids.get(1), null, 2);
+        assertTrue(lost.isCursorLost());
+        assertTrue(lost.getItems().isEmpty());
+    }
+
+    private List<Long> products(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(productRepository.save(
+                    new Product("Page item " + i, "Description", new BigDecimal("1.00"), null, 1)).getId());
+        }
+        return ids;
+    }
+
+    private static List<Long> ids(ProductPage page) {
+        return page.getItems().stream().map(Product::getId).toList();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.onlinestore.view;
+
+import com.example.onlinestore.model.Product;
+import com.example.onlinestore.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.csrf.DefaultCsrfToken;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "app.view.fragment-cache.enabled=true")
+class ProductFragmentCacheTests {
+
+    @Autowired
+    private ProductFragmentCache fragmentCache;
+
+    @Autowired
+    private ProductService productService;
+
+    @Test
+    void cachedCardGetsTokenOfEachRequest() {
+        Product product = productService.saveProduct(
+                new Product("Fragment lamp", "Description", new BigDecimal("10.00"), null, 10));
+
+        String first = fragmentCache.card(product, token("first"));
+        String second = fragmentCache.card(product, token("second"));
+
+        assertTrue(first.contains("Fragment lamp"));
+        assertTrue(first.contains("value=\"first\""));
+        assertTrue(second.contains("value=\"second\""));
+        assertFalse(second.contains(ProductFragmentCache.CSRF_MARKER));
+    }
+
+    @Test
+    void savedProductIsRenderedAgain() {
+        Product product = productService.saveProduct(
+                new Product("Old name", "Description", new BigDecimal("10.00"), null, 10));
+        assertTrue(fragmentCache.details(product, token("t")).contains("Old name"));
+
+        product.setName("New name");
+        Product saved = productService.saveProduct(product);
+
+        String html = fragmentCache.details(saved, token("t"));
+        assertTrue(html.contains("New name"));
+        assertFalse(html.contains("Old name"));
+    }
+
+    private static CsrfToken token(String value) {
+        return new DefaultCsrfToken("X-CSRF-TOKEN", "_csrf", value);
+    }
+}
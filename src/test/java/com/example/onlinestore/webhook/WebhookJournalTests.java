@@ -0,0 +1,85 @@
+package com.example.onlinestore.webhook;
+
+import com.example.onlinestore.model.PaymentStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class WebhookJournalTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopenReturnsOnlyUnappliedEvents() throws IOException {
+        Path path = dir.resolve("journal.log");
+        WebhookJournal journal = open(path);
+        journal.open();
+        for (long sequence = 1; sequence <= 3; sequence++) {
+            journal.append(event(sequence));
+        }
+        journal.markApplied(2);
+        journal.close();
+
+        WebhookJournal reopened = open(path);
+        assertEquals(List.of(1L, 3L), sequences(reopened.open()));
+        assertEquals(3, reopened.lastSequence());
+        reopened.close();
+
+        // Журнал переписан только необработанными событиями, временный файл убран
+        assertEquals(List.of("E|1|p1|SUCCEEDED", "E|3|p3|SUCCEEDED"),
+                Files.readAllLines(path, StandardCharsets.UTF_8));
+        assertFalse(Files.exists(dir.resolve("journal.log.tmp")));
+    }
+
+    @Test
+    void eventsAppendedAfterReopenSurviveNextReopen() throws IOException {
+        Path path = dir.resolve("journal.log");
+        WebhookJournal journal = open(path);
+        journal.open();
+        journal.append(event(1));
+        journal.close();
+
+        WebhookJournal reopened = open(path);
+        reopened.open();
+        reopened.append(event(2));
+        reopened.close();
+
+        WebhookJournal last = open(path);
+        assertEquals(List.of(1L, 2L), sequences(last.open()));
+        last.close();
+    }
+
+    @Test
+    void corruptedTailAndStaleTempFileAreIgnored() throws IOException {
+        Path path = dir.resolve("journal.log");
+        Files.writeString(path, "E|1|p1|SUCCEEDED\nE|2|p2|SUCC", StandardCharsets.UTF_8);
+        // Остаток прерванного открытия: не должен подменить журнал
+        Files.writeString(dir.resolve("journal.log.tmp"), "E|9|p9|SUCCEEDED\n", StandardCharsets.UTF_8);
+
+        WebhookJournal journal = open(path);
+        assertEquals(List.of(1L), sequences(journal.open()));
+        journal.close();
+        assertFalse(Files.exists(dir.resolve("journal.log.tmp")));
+    }
+
+    private static WebhookJournal open(Path path) {
+        return new WebhookJournal(path, true, 1024 * 1024);
+    }
+
+    private static WebhookEvent event(long sequence) {
+        return new WebhookEvent(sequence, "p" + sequence, PaymentStatus.SUCCEEDED, 0);
+    }
+
+    private static List<Long> sequences(List<WebhookEvent> events) {
+        return events.stream().map(WebhookEvent::sequence).toList();
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.onlinestore.webhook;
+
+import com.example.onlinestore.model.PaymentStatus;
+import com.example.onlinestore.service.PaymentService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebhookProcessorTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void unappliedEventsAreReplayedOnStart() throws Exception {
+        Path path = dir.resolve("journal.log");
+        Files.writeString(path, "E|1|p-replay|SUCCEEDED\nE|2|p-done|SUCCEEDED\nA|2\n", StandardCharsets.UTF_8);
+        PaymentService paymentService = mock(PaymentService.class);
+        when(paymentService.applyStatusUpdates(anyList())).thenReturn(Set.of());
+        when(paymentService.fetchPaymentStatus(anyString())).thenReturn(Mono.just(PaymentStatus.SUCCEEDED));
+
+        WebhookProcessor processor = processor(path, paymentService);
+        processor.open();
+        processor.start();
+
+        verify(paymentService, timeout(5000))
+                .applyStatusUpdates(List.of(Map.entry("p-replay", PaymentStatus.SUCCEEDED)));
+        // Повтор уже принятого уведомления отсеивается
+        assertFalse(processor.submit("p-replay", PaymentStatus.SUCCEEDED));
+        processor.stop();
+
+        WebhookJournal journal = new WebhookJournal(path, true, 1024 * 1024);
+        assertTrue(journal.open().isEmpty());
+        journal.close();
+    }
+
+    @Test
+    void droppedEventCanBeSubmittedAgain() throws Exception {
+        PaymentService paymentService = mock(PaymentService.class);
+        when(paymentService.applyStatusUpdates(anyList())).thenReturn(Set.of("p-unknown"));
+        when(paymentService.fetchPaymentStatus(anyString())).thenReturn(Mono.just(PaymentStatus.SUCCEEDED));
+
+        WebhookProcessor processor = processor(dir.resolve("journal.log"), paymentService);
+        processor.open();
+        processor.start();
+        try {
+            assertTrue(processor.submit("p-unknown", PaymentStatus.SUCCEEDED));
+            assertFalse(processor.submit("p-unknown", PaymentStatus.SUCCEEDED));
+
+            // После исчерпания попыток событие отброшено, и ключ повтора снят
+            long deadline = System.currentTimeMillis() + 5000;
+            boolean accepted = false;
+            while (!accepted && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+                accepted = processor.submit("p-unknown", PaymentStatus.SUCCEEDED);
+            }
+            assertTrue(accepted);
+        } finally {
+            processor.stop();
+        }
+    }
+
+    @Test
+    void statusIsTakenFromYooKassaNotFromNotification() throws Exception {
+        PaymentService paymentService = mock(PaymentService.class);
+        when(paymentService.applyStatusUpdates(anyList())).thenReturn(Set.of());
+        when(paymentService.fetchPaymentStatus("p-canceled")).thenReturn(Mono.just(PaymentStatus.CANCELED));
+        when(paymentService.fetchPaymentStatus("p-forged")).thenReturn(Mono.empty());
+
+        WebhookProcessor processor = processor(dir.resolve("journal.log"), paymentService);
+        processor.open();
+        processor.start();
+        try {
+            processor.submit("p-forged", PaymentStatus.SUCCEEDED);
+            processor.submit("p-canceled", PaymentStatus.SUCCEEDED);
+
+            verify(paymentService, timeout(5000))
+                    .applyStatusUpdates(List.of(Map.entry("p-canceled", PaymentStatus.CANCELED)));
+            verify(paymentService, never())
+                    .applyStatusUpdates(List.of(Map.entry("p-forged", PaymentStatus.SUCCEEDED)));
+            // Неподтвержденное уведомление отброшено, его повтор снова принимается
+            assertTrue(processor.submit("p-forged", PaymentStatus.SUCCEEDED));
+        } finally {
+            processor.stop();
+        }
+    }
+
+    @Test
+    void eventIsRetriedWhileYooKassaIsUnavailable() throws Exception {
+        PaymentService paymentService = mock(PaymentService.class);
+        when(paymentService.applyStatusUpdates(anyList())).thenReturn(Set.of());
+        when(paymentService.fetchPaymentStatus("p-retry"))
+                .thenReturn(Mono.error(new IllegalStateException("timeout")))
+                .thenReturn(Mono.error(new IllegalStateException("timeout")))
+                .thenReturn(Mono.error(new IllegalStateException("timeout")))
+                .thenReturn(Mono.just(PaymentStatus.SUCCEEDED));
+
+        WebhookProcessor processor = processor(dir.resolve("journal.log"), paymentService);
+        processor.open();
+        processor.start();
+        try {
+            processor.submit("p-retry", PaymentStatus.SUCCEEDED);
+
+            // Ошибки ЮKassa не расходуют попытки (maxAttempts=2)
+            verify(paymentService, timeout(5000))
+                    .applyStatusUpdates(List.of(Map.entry("p-retry", PaymentStatus.SUCCEEDED)));
+        } finally {
+            processor.stop();
+        }
+    }
+
+    private static WebhookProcessor processor(Path path, PaymentService paymentService) {
+        WebhookProcessor processor = new WebhookProcessor();
+        ReflectionTestUtils.setField(processor, "paymentService", paymentService);
+        ReflectionTestUtils.setField(processor, "journalPath", path.toString());
+        ReflectionTestUtils.setField(processor, "fsync", true);
+        ReflectionTestUtils.setField(processor, "workerCount", 2);
+        ReflectionTestUtils.setField(processor, "batchSize", 100);
+        ReflectionTestUtils.setField(processor, "compactThresholdBytes", 1024L * 1024);
+        ReflectionTestUtils.setField(processor, "maxAttempts", 2);
+        ReflectionTestUtils.setField(processor, "retryDelayMs", 10L);
+        ReflectionTestUtils.setField(processor, "verifyConcurrency", 4);
+        return processor;
+    }
+}